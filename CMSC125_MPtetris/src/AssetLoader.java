@@ -0,0 +1,107 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads game assets in the background at startup.
+ * Sound effect decoding, the high score table, session stats, block sprites,
+ * the audio output line and pooled board effects are prepared in parallel on
+ * a small pool of daemon threads while the start screen is shown, so the UI
+ * is interactive immediately. Callers that need an asset before it has
+ * finished loading wait only for that asset. The time to the first painted
+ * frame and to fully loaded assets is reported on standard output.
+ */
+public final class AssetLoader {
+    // Measured from when the launcher first touches this class
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    // Block size used by the game boards of both modes
+    private static final int BOARD_BLOCK_SIZE = 30;
+    private static final int BOARD_WIDTH = 10;
+    private static final int BOARD_HEIGHT = 20;
+
+    private static ExecutorService executor;
+    private static CompletableFuture<Void> effects;
+    private static CompletableFuture<HighScoreManager> highScores;
+    private static CompletableFuture<SessionStatsStore> sessionStats;
+    private static CompletableFuture<Void> sprites;
+    private static CompletableFuture<Void> warmPool;
+    private static final AtomicBoolean firstFrameReported = new AtomicBoolean(false);
+
+    private AssetLoader() {
+    }
+
+    /**
+     * Starts loading all assets in parallel. Calling it again has no effect.
+     */
+    public static synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Tetris-AssetLoader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        effects = SoundManager.preloadEffects(executor);
+        highScores = CompletableFuture.supplyAsync(HighScoreManager::new, executor);
+        sessionStats = CompletableFuture.supplyAsync(SessionStatsStore::new, executor);
+        sprites = CompletableFuture.runAsync(() -> BlockSprites.prerender(BOARD_BLOCK_SIZE), executor);
+        // Output line and background effects for the boards, so entering a game does not build them
+        warmPool = CompletableFuture.runAsync(() -> {
+            AudioAssetCache.preopen();
+            CosmicEffects.prewarm(BOARD_WIDTH * BOARD_BLOCK_SIZE, BOARD_HEIGHT * BOARD_BLOCK_SIZE, 2);
+        }, executor);
+
+        CompletableFuture.allOf(effects, highScores, sessionStats, sprites, warmPool).whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Error loading assets: " + error.getMessage());
+            }
+            System.out.printf("Assets loaded in %d ms%n", millisSinceLaunch());
+            executor.shutdown();
+        });
+    }
+
+    /**
+     * Gets the shared high score manager, waiting for it to load if needed
+     * @return The high score manager
+     */
+    public static HighScoreManager getHighScoreManager() {
+        start();
+        return highScores.join();
+    }
+
+    /**
+     * Gets the shared session stats store, waiting for it to load if needed
+     * @return The session stats store
+     */
+    public static SessionStatsStore getSessionStatsStore() {
+        start();
+        return sessionStats.join();
+    }
+
+    /**
+     * Reports the time to the first painted frame. Only the first call has an effect.
+     */
+    public static void firstFrameShown() {
+        if (!firstFrameReported.compareAndSet(false, true)) {
+            return;
+        }
+
+        String sinceProcessStart = ProcessHandle.current().info().startInstant()
+            .map(start -> Duration.between(start, Instant.now()).toMillis() + " ms since process start")
+            .orElse("process start time unknown");
+        System.out.printf("First frame after %d ms since launch (%s)%n", millisSinceLaunch(), sinceProcessStart);
+    }
+
+    private static long millisSinceLaunch() {
+        return (System.nanoTime() - LAUNCH_NANOS) / 1_000_000;
+    }
+}
@@ -0,0 +1,47 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Replaces files in one step, so a crash or a second reader never sees a
+ * half written file. Content is written to a temporary sibling first and
+ * then moved over the target, atomically where the file system supports it.
+ */
+public final class AtomicFiles {
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private AtomicFiles() {
+    }
+
+    /**
+     * Moves a file over another, atomically if the file system allows it
+     * @param source The finished file
+     * @param target The file to replace
+     */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes properties to a temporary sibling and moves it over the target
+     * @param target The file to replace
+     * @param properties The properties to write
+     * @param comment Comment for the top of the file, may be null
+     */
+    public static void writeProperties(Path target, Properties properties, String comment) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, comment);
+        }
+        move(temp, target);
+    }
+}
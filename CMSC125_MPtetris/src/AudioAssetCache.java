@@ -0,0 +1,124 @@
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide cache of decoded sound effects shared by every SoundManager.
+ * Each effect under /sounds is read and decoded at most once per process, so
+ * switching screens, restarting and returning to the menu cost no effect I/O
+ * after the first load. Music is not cached, it is streamed by MusicStreamer.
+ * The shared mixer is reference counted: it is started by the first
+ * SoundManager and closed shortly after the last one is cleaned up, unless
+ * another SoundManager acquires it in the meantime.
+ */
+public final class AudioAssetCache {
+    private static final String SOUND_PATH = "/sounds/";
+    // Keeps the mixer line open across screen switches, which release before acquiring
+    private static final long CLOSE_DELAY_MS = 2000;
+
+    // Missing files are cached as empty entries so they are only looked up once
+    private static final short[] MISSING_EFFECT = new short[0];
+
+    private static final Map<String, CompletableFuture<short[]>> effects = new ConcurrentHashMap<>();
+
+    private static final Object mixerLock = new Object();
+    private static AudioMixer mixer;
+    private static int references = 0;
+    private static int generation = 0;
+
+    private AudioAssetCache() {
+    }
+
+    /**
+     * Registers a user of the shared mixer, starting it if needed
+     * @return The shared effects mixer
+     */
+    public static AudioMixer acquire() {
+        synchronized (mixerLock) {
+            references++;
+            generation++;
+            if (mixer == null) {
+                mixer = new AudioMixer();
+                mixer.start();
+            }
+            return mixer;
+        }
+    }
+
+    /**
+     * Opens the shared mixer ahead of its first user. It stays open for the
+     * usual close delay, so a screen acquiring it soon after does not wait
+     * for the output line to open.
+     */
+    public static void preopen() {
+        acquire();
+        release();
+    }
+
+    /**
+     * Unregisters a user of the shared mixer. The mixer line is closed after a
+     * short delay if nobody acquires it again.
+     */
+    public static void release() {
+        synchronized (mixerLock) {
+            if (references == 0) {
+                return;
+            }
+            references--;
+            if (references > 0) {
+                return;
+            }
+
+            int releasedGeneration = generation;
+            CompletableFuture.runAsync(() -> closeIfUnused(releasedGeneration),
+                CompletableFuture.delayedExecutor(CLOSE_DELAY_MS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static void closeIfUnused(int releasedGeneration) {
+        synchronized (mixerLock) {
+            if (references == 0 && generation == releasedGeneration && mixer != null) {
+                mixer.close();
+                mixer = null;
+            }
+        }
+    }
+
+    /**
+     * Starts decoding a sound effect unless it is already loaded or loading
+     * @param name File name without extension, for example "drop1"
+     * @param executor Executor to decode on
+     * @return Future completing once the effect is decoded or known to be missing
+     */
+    public static CompletableFuture<short[]> loadEffectAsync(String name, Executor executor) {
+        return effects.computeIfAbsent(name,
+            key -> CompletableFuture.supplyAsync(() -> loadEffect(key), executor));
+    }
+
+    /**
+     * Gets a sound effect if it has finished decoding, without waiting
+     * @param name File name without extension, for example "drop1"
+     * @return The decoded samples, or null if the effect is missing or still loading
+     */
+    public static short[] getLoadedEffect(String name) {
+        CompletableFuture<short[]> future = effects.get(name);
+        short[] samples = future == null ? null : future.getNow(null);
+        return samples == MISSING_EFFECT ? null : samples;
+    }
+
+    private static short[] loadEffect(String name) {
+        URL effectURL = AudioAssetCache.class.getResource(SOUND_PATH + name + ".wav");
+        if (effectURL == null) {
+            return MISSING_EFFECT;
+        }
+        try {
+            return AudioMixer.decode(effectURL);
+        } catch (Exception e) {
+            System.err.println("Error loading sound effect " + name + ": " + e.getMessage());
+            return MISSING_EFFECT;
+        }
+    }
+}
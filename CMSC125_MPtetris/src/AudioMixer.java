@@ -0,0 +1,304 @@
+import javax.sound.sampled.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Software mixer that plays decoded sound effects through a single
+ * SourceDataLine. Effects are decoded once to 16-bit PCM in the mixer's output
+ * format and mixed on a dedicated thread into a small line buffer, so a trigger
+ * only claims a voice and starts sounding within one mix period. Repeats of the
+ * same effect overlap instead of restarting each other. When every voice is
+ * busy the oldest voice is stolen. One MusicStreamer can be mixed in as well.
+ */
+public class AudioMixer {
+    /** Format every effect is decoded to and the line is opened with */
+    public static final AudioFormat OUTPUT_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+
+    private static final int CHANNELS = 2;
+    private static final int MAX_VOICES = 12;
+    // Frames mixed per write, about 5.8 ms at 44.1 kHz
+    private static final int MIX_FRAMES = 256;
+    // Frames buffered by the line, about 23 ms at 44.1 kHz
+    private static final int LINE_BUFFER_FRAMES = 1024;
+
+    private final Voice[] voices = new Voice[MAX_VOICES];
+    private final int[] mixBuffer = new int[MIX_FRAMES * CHANNELS];
+    private final byte[] outputBuffer = new byte[MIX_FRAMES * CHANNELS * 2];
+    private long triggerCount = 0;
+    private int activeVoices = 0;
+    private MusicStreamer music;
+    private float musicGain;
+
+    private SourceDataLine line;
+    private Thread mixerThread;
+    private volatile boolean running;
+
+    /**
+     * A playing instance of a sound effect
+     */
+    private static class Voice {
+        short[] samples;
+        int position;
+        float gain;
+        long startOrder;
+    }
+
+    public AudioMixer() {
+        for (int i = 0; i < MAX_VOICES; i++) {
+            voices[i] = new Voice();
+        }
+    }
+
+    /**
+     * Decodes an audio resource to interleaved 16-bit stereo samples in the output format
+     * @param url Location of the audio file
+     * @return The decoded samples
+     * @throws IOException If the file cannot be read
+     * @throws UnsupportedAudioFileException If the file format is not supported
+     */
+    public static short[] decode(URL url) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(url)) {
+            return decode(source);
+        }
+    }
+
+    /**
+     * Decodes an audio stream to interleaved 16-bit stereo samples in the output format
+     * @param source Stream to decode, closed when done
+     * @return The decoded samples
+     * @throws IOException If the stream cannot be read
+     */
+    public static short[] decode(AudioInputStream source) throws IOException {
+        try (AudioInputStream converted = convert(source)) {
+            byte[] bytes = readAll(converted);
+            short[] samples = new short[bytes.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((bytes[i * 2] & 0xFF) | (bytes[i * 2 + 1] << 8));
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Opens an audio resource as a stream in the output format
+     * @param url Location of the audio file
+     * @return Stream of 16-bit stereo samples at the output sample rate
+     * @throws IOException If the file cannot be read
+     * @throws UnsupportedAudioFileException If the file format is not supported
+     */
+    public static AudioInputStream openConverted(URL url) throws IOException, UnsupportedAudioFileException {
+        return convert(AudioSystem.getAudioInputStream(url));
+    }
+
+    private static AudioInputStream convert(AudioInputStream source) {
+        AudioFormat sourceFormat = source.getFormat();
+        AudioFormat pcmFormat = new AudioFormat(
+            sourceFormat.getSampleRate(), 16, CHANNELS, true, false);
+
+        // Convert the encoding and channel count first, then the sample rate
+        AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source);
+        return pcmFormat.matches(OUTPUT_FORMAT) ? pcm : AudioSystem.getAudioInputStream(OUTPUT_FORMAT, pcm);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Opens the output line and starts the mixer thread
+     * @return true if an output line could be opened
+     */
+    public synchronized boolean start() {
+        if (running) {
+            return true;
+        }
+        try {
+            line = AudioSystem.getSourceDataLine(OUTPUT_FORMAT);
+            line.open(OUTPUT_FORMAT, LINE_BUFFER_FRAMES * OUTPUT_FORMAT.getFrameSize());
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("Error opening audio line: " + e.getMessage());
+            line = null;
+            return false;
+        }
+
+        running = true;
+        mixerThread = new Thread(this::mixLoop, "Tetris-AudioMixer");
+        mixerThread.setDaemon(true);
+        mixerThread.setPriority(Thread.MAX_PRIORITY);
+        mixerThread.start();
+        return true;
+    }
+
+    /**
+     * Starts playing a sound on a free voice, stealing the oldest voice if all are busy
+     * @param samples Samples in the output format, as returned by decode
+     * @param gain Linear gain between 0 and 1
+     * @return true if the sound was queued
+     */
+    public boolean play(short[] samples, float gain) {
+        if (!running || samples == null || samples.length == 0) {
+            return false;
+        }
+
+        synchronized (voices) {
+            Voice target = null;
+            for (Voice voice : voices) {
+                if (voice.samples == null) {
+                    target = voice;
+                    break;
+                }
+                if (target == null || voice.startOrder < target.startOrder) {
+                    target = voice;
+                }
+            }
+
+            if (target.samples == null) {
+                activeVoices++;
+            }
+            target.samples = samples;
+            target.position = 0;
+            target.gain = gain;
+            target.startOrder = triggerCount++;
+            voices.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Mixes a music stream into the output, replacing any current music
+     * @param streamer Started streamer to drain, or null to stop the music
+     * @param gain Linear gain between 0 and 1
+     * @return true if the mixer is running and will play the music
+     */
+    public boolean setMusic(MusicStreamer streamer, float gain) {
+        synchronized (voices) {
+            music = streamer;
+            musicGain = gain;
+            voices.notifyAll();
+        }
+        return running;
+    }
+
+    /**
+     * Stops mixing a music stream if it is the current one
+     * @param streamer The streamer to detach
+     */
+    public void clearMusic(MusicStreamer streamer) {
+        synchronized (voices) {
+            if (music == streamer) {
+                music = null;
+            }
+        }
+    }
+
+    /**
+     * Checks if the mixer has an output line
+     * @return true if sounds passed to the mixer are audible
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Silences every playing voice
+     */
+    public void stopAll() {
+        synchronized (voices) {
+            for (Voice voice : voices) {
+                voice.samples = null;
+            }
+            activeVoices = 0;
+        }
+    }
+
+    private void mixLoop() {
+        SourceDataLine output = line;
+        while (running) {
+            synchronized (voices) {
+                // Sleep while nothing is playing instead of feeding silence to the line
+                while (running && activeVoices == 0 && music == null) {
+                    try {
+                        voices.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    break;
+                }
+                mixVoices();
+            }
+            output.write(outputBuffer, 0, outputBuffer.length);
+        }
+    }
+
+    private void mixVoices() {
+        Arrays.fill(mixBuffer, 0);
+
+        if (music != null) {
+            music.mixInto(mixBuffer, musicGain);
+        }
+
+        for (Voice voice : voices) {
+            short[] samples = voice.samples;
+            if (samples == null) continue;
+
+            int count = Math.min(mixBuffer.length, samples.length - voice.position);
+            float gain = voice.gain;
+            for (int i = 0; i < count; i++) {
+                mixBuffer[i] += (int) (samples[voice.position + i] * gain);
+            }
+            voice.position += count;
+            if (voice.position >= samples.length) {
+                voice.samples = null;
+                activeVoices--;
+            }
+        }
+
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+            outputBuffer[i * 2] = (byte) sample;
+            outputBuffer[i * 2 + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Stops the mixer thread and releases the output line
+     */
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        synchronized (voices) {
+            voices.notifyAll();
+        }
+        if (mixerThread != null) {
+            mixerThread.interrupt();
+            try {
+                mixerThread.join(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mixerThread = null;
+        }
+        if (line != null) {
+            line.stop();
+            line.close();
+            line = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single daemon thread that runs a store's disk writes in order, so the
+ * game never waits for the disk. Being a daemon it does not keep the game
+ * alive, so a shutdown hook flushes it on exit to give a pending write a
+ * chance to finish.
+ */
+public final class BackgroundWriter {
+    // How long exit waits for a pending write
+    private static final long FLUSH_TIMEOUT_MS = 2000;
+
+    private final String description;
+    private final ExecutorService executor;
+
+    /**
+     * Starts the writer thread and registers its flush on exit
+     * @param name Name of the store in thread names, such as "HighScore"
+     * @param description What is written, for error messages, such as "high scores"
+     */
+    public BackgroundWriter(String name, String description) {
+        this.description = description;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Tetris-" + name + "Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "Tetris-" + name + "Flush"));
+    }
+
+    /**
+     * Queues a write behind the ones already pending
+     * @param write The write to run on the writer thread
+     */
+    public void execute(Runnable write) {
+        executor.execute(write);
+    }
+
+    /**
+     * Waits for any pending write to reach the disk
+     */
+    public void flush() {
+        try {
+            executor.submit(() -> { }).get(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.err.println("Error flushing " + description + ": " + e.getMessage());
+        }
+    }
+}
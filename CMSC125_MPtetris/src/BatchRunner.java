@@ -0,0 +1,287 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point that plays many seeded bot games without any
+ * Swing, for measuring and tuning bots.
+ * Game i uses seed + i, so a run is repeatable whatever the thread count.
+ * The seed range is split over a ForkJoinPool, idle workers steal the
+ * halves other workers have not started yet. Each worker plays its games
+ * on a Simulation with an uncapped virtual clock and hands the results to
+ * the main thread, which streams them to the output file as they finish,
+ * so the file is in completion order and not in game order.
+ *
+ * Usage: java BatchRunner [--games N] [--bot heuristic|greedy|drop] [--seed S]
+ *        [--max-pieces P] [--threads T] [--out results.csv|results.bin]
+ *
+ * The binary format is one record per game of big-endian values: int game,
+ * long seed, int score, int lines, int pieces, long virtual milliseconds,
+ * long wall clock microseconds.
+ */
+public class BatchRunner {
+    // Games a worker plays itself instead of splitting the range further
+    private static final int CHUNK_GAMES = 4;
+
+    /**
+     * One finished game
+     */
+    static final class GameResult {
+        final int game;
+        final long seed;
+        final Simulation.Result result;
+        final long wallMicros;
+
+        GameResult(int game, long seed, Simulation.Result result, long wallMicros) {
+            this.game = game;
+            this.seed = seed;
+            this.result = result;
+            this.wallMicros = wallMicros;
+        }
+    }
+
+    /**
+     * Creates the input script of one game
+     */
+    interface BotFactory {
+        Simulation.InputScript create();
+    }
+
+    /**
+     * Receives finished games on the main thread
+     */
+    interface ResultWriter extends Closeable {
+        void write(GameResult result) throws IOException;
+    }
+
+    /**
+     * Plays a range of games, splitting it while it is larger than a chunk
+     */
+    private static final class GameRange extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final int maxPieces;
+        private final BotFactory bots;
+        private final BlockingQueue<GameResult> results;
+
+        GameRange(int from, int to, long seed, int maxPieces, BotFactory bots, BlockingQueue<GameResult> results) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.maxPieces = maxPieces;
+            this.bots = bots;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_GAMES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GameRange(from, middle, seed, maxPieces, bots, results),
+                          new GameRange(middle, to, seed, maxPieces, bots, results));
+                return;
+            }
+            for (int game = from; game < to; game++) {
+                long gameSeed = seed + game;
+                long start = System.nanoTime();
+                Simulation.Result result = new Simulation(gameSeed)
+                    .setInputScript(bots.create())
+                    .setLimits(Long.MAX_VALUE, maxPieces)
+                    .run();
+                long wallMicros = (System.nanoTime() - start) / 1000;
+                try {
+                    results.put(new GameResult(game, gameSeed, result, wallMicros));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays games on a pool and passes each result to a writer as it finishes
+     * @param games Number of games
+     * @param seed Seed of the first game
+     * @param maxPieces Pieces after which a game stops
+     * @param threads Worker threads
+     * @param bots Creates a fresh bot for every game
+     * @param writer Receives the results on the calling thread, may be null
+     * @return The results in game order
+     */
+    public static GameResult[] run(int games, long seed, int maxPieces, int threads,
+                                   BotFactory bots, ResultWriter writer) throws IOException {
+        GameResult[] all = new GameResult[games];
+        BlockingQueue<GameResult> results = new ArrayBlockingQueue<>(Math.max(64, threads * CHUNK_GAMES * 4));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            GameRange task = new GameRange(0, games, seed, maxPieces, bots, results);
+            pool.execute(task);
+            for (int i = 0; i < games; i++) {
+                GameResult result;
+                while ((result = results.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                    // A game that threw would leave us waiting forever
+                    if (task.isCompletedAbnormally()) {
+                        throw new IOException("Game failed after " + countDone(all) + " games", task.getException());
+                    }
+                }
+                all[result.game] = result;
+                if (writer != null) {
+                    writer.write(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted after " + countDone(all) + " games", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return all;
+    }
+
+    private static int countDone(GameResult[] all) {
+        int done = 0;
+        for (GameResult result : all) {
+            if (result != null) done++;
+        }
+        return done;
+    }
+
+    /**
+     * Gets the factory for a bot name
+     * @param name "heuristic", "greedy" or "drop"
+     * @return The factory, or null for an unknown name
+     */
+    static BotFactory botFactory(String name) {
+        switch (name) {
+            case "heuristic": return HeuristicBot::new;
+            case "greedy": {
+                double[] weights = HeuristicBot.getStartupWeights();
+                return () -> new HeuristicBot(weights, 0, false);
+            }
+            case "drop": return () -> Simulation.NO_INPUT;
+            default: return null;
+        }
+    }
+
+    private static ResultWriter openWriter(String path) throws IOException {
+        if (path == null) {
+            return null;
+        }
+        if (path.endsWith(".bin")) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+            return new ResultWriter() {
+                @Override
+                public void write(GameResult r) throws IOException {
+                    out.writeInt(r.game);
+                    out.writeLong(r.seed);
+                    out.writeInt(r.result.score);
+                    out.writeInt(r.result.lines);
+                    out.writeInt(r.result.pieces);
+                    out.writeLong(r.result.virtualMillis);
+                    out.writeLong(r.wallMicros);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+        BufferedWriter out = new BufferedWriter(new FileWriter(path));
+        out.write("game,seed,score,lines,pieces,virtual_ms,wall_us");
+        out.newLine();
+        return new ResultWriter() {
+            @Override
+            public void write(GameResult r) throws IOException {
+                out.write(r.game + "," + r.seed + "," + r.result.score + "," + r.result.lines + ","
+                    + r.result.pieces + "," + r.result.virtualMillis + "," + r.wallMicros);
+                out.newLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    public static void main(String[] args) {
+        int games = 1000;
+        String bot = "heuristic";
+        long seed = 1;
+        int maxPieces = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String outPath = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--games": games = Integer.parseInt(args[++i]); break;
+                    case "--bot": bot = args[++i]; break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    case "--max-pieces": maxPieces = Integer.parseInt(args[++i]); break;
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--out": outPath = args[++i]; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        printUsage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            printUsage();
+            return;
+        }
+        BotFactory bots = botFactory(bot);
+        if (bots == null || games <= 0 || threads <= 0 || maxPieces <= 0) {
+            printUsage();
+            return;
+        }
+
+        System.out.printf("Playing %d games with the %s bot on %d threads%n", games, bot, threads);
+        long start = System.nanoTime();
+        GameResult[] results;
+        try (ResultWriter writer = openWriter(outPath)) {
+            results = run(games, seed, maxPieces, threads, bots, writer);
+        } catch (IOException e) {
+            System.err.println("Error running batch: " + e.getMessage());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long pieces = 0;
+        long lines = 0;
+        long score = 0;
+        int gamesOver = 0;
+        for (GameResult result : results) {
+            pieces += result.result.pieces;
+            lines += result.result.lines;
+            score += result.result.score;
+            if (result.result.gameOver) gamesOver++;
+        }
+        System.out.printf("%d games in %.2fs: %.1f games/s, %.0f pieces/s%n",
+            games, seconds, games / seconds, pieces / seconds);
+        System.out.printf("Mean score %.1f, mean lines %.1f, mean pieces %.1f, %d topped out%n",
+            (double) score / games, (double) lines / games, (double) pieces / games, gamesOver);
+        if (outPath != null) {
+            System.out.println("Results written to " + outPath);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java BatchRunner [--games N] [--bot heuristic|greedy|drop] [--seed S]"
+            + " [--max-pieces P] [--threads T] [--out results.csv|results.bin]");
+    }
+}
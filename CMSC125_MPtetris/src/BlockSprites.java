@@ -0,0 +1,107 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-rendered images of the parts of a block that do not animate.
+ * The gradient body, inner edge and highlight of every piece color are drawn
+ * once per block size, so painting a block only has to draw its animated glow
+ * and then blit the cached body.
+ */
+public final class BlockSprites {
+    /** Block colors indexed by piece type, 0 is empty */
+    public static final Color[] COLORS = {
+        Color.BLACK,      // 0 - Empty
+        new Color(0, 255, 255),  // 1 - I piece (Cyan)
+        new Color(0, 0, 255),    // 2 - J piece (Blue)
+        new Color(255, 165, 0),  // 3 - L piece (Orange)
+        new Color(255, 255, 0),  // 4 - O piece (Yellow)
+        new Color(0, 255, 0),    // 5 - S piece (Green)
+        new Color(255, 0, 255),  // 6 - T piece (Magenta)
+        new Color(255, 0, 0)     // 7 - Z piece (Red)
+    };
+
+    private static final Map<Integer, Image[]> bodiesBySize = new ConcurrentHashMap<>();
+
+    private BlockSprites() {
+    }
+
+    /**
+     * Renders the block bodies of every color for a block size, if not done yet
+     * @param blockSize Block size in pixels
+     */
+    public static void prerender(int blockSize) {
+        bodiesBySize.computeIfAbsent(blockSize, BlockSprites::renderBodies);
+    }
+
+    /**
+     * Gets the cached body of a block
+     * @param colorIndex Color index of the block
+     * @param blockSize Block size in pixels
+     * @return Image of size blockSize x blockSize
+     */
+    public static Image getBody(int colorIndex, int blockSize) {
+        return bodiesBySize.computeIfAbsent(blockSize, BlockSprites::renderBodies)[colorIndex];
+    }
+
+    private static Image[] renderBodies(int blockSize) {
+        Image[] bodies = new Image[COLORS.length];
+        for (int i = 1; i < COLORS.length; i++) {
+            bodies[i] = renderBody(COLORS[i], blockSize);
+        }
+        return bodies;
+    }
+
+    private static Image renderBody(Color baseColor, int blockSize) {
+        BufferedImage image = createImage(blockSize, blockSize);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        GradientPaint gradient = new GradientPaint(
+            0, 0,
+            baseColor,
+            blockSize, blockSize,
+            new Color(
+                Math.max(0, baseColor.getRed() - 50),
+                Math.max(0, baseColor.getGreen() - 50),
+                Math.max(0, baseColor.getBlue() - 50)
+            )
+        );
+        g2d.setPaint(gradient);
+        g2d.fillRoundRect(2, 2, blockSize - 4, blockSize - 4, 6, 6);
+
+        g2d.setColor(new Color(0, 0, 0, 40));
+        g2d.setStroke(new BasicStroke(2f));
+        g2d.drawRoundRect(3, 3, blockSize - 6, blockSize - 6, 5, 5);
+
+        GradientPaint highlight = new GradientPaint(
+            0, 2,
+            new Color(255, 255, 255, 120),
+            0, blockSize / 2,
+            new Color(255, 255, 255, 0)
+        );
+        g2d.setPaint(highlight);
+        g2d.fillRoundRect(4, 4, blockSize - 8, blockSize / 2 - 4, 6, 6);
+
+        g2d.dispose();
+        return image;
+    }
+
+    /**
+     * Creates a translucent image to render sprites into
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @return An image that draws fast on the screen
+     */
+    static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        // Images in the screen's format can be blitted without conversion
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getDefaultScreenDevice()
+            .getDefaultConfiguration()
+            .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
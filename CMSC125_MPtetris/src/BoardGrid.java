@@ -0,0 +1,283 @@
+import java.util.Arrays;
+
+/**
+ * The BoardGrid class stores the locked blocks of a game board.
+ * Rows are kept in a circular buffer of row arrays, so clearing lines moves
+ * row references instead of copying cells. All full rows are removed in a
+ * single compaction pass over whichever side of the cleared rows is shorter:
+ * the stack above them, or the rows between them and the floor. The cost of
+ * a clear therefore depends on the stack, not on the height of the board.
+ * The grid also keeps per-row fill counts and per-column heights up to date.
+ */
+public class BoardGrid {
+    private final int width;
+    private final int height;
+
+    // Physical row storage, logical row y lives in rows[(head + y) % height]
+    private final int[][] rows;
+    private final int[] rowFill;
+    private int head = 0;
+
+    // Row index of the highest occupied cell in each column, height when empty
+    private final int[] columnTops;
+    // Incremented whenever locked blocks change
+    private int version = 0;
+
+    // Scratch space reused by clearFullRows
+    private final int[][] recycledRows;
+    private final boolean[] clearedRows;
+
+    /**
+     * Constructor for an empty grid
+     * @param width Width in blocks
+     * @param height Height in blocks
+     */
+    public BoardGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.rows = new int[height][width];
+        this.rowFill = new int[height];
+        this.columnTops = new int[width];
+        this.recycledRows = new int[height][];
+        this.clearedRows = new boolean[height];
+        clear();
+    }
+
+    /**
+     * Removes every block from the grid
+     */
+    public void clear() {
+        for (int i = 0; i < height; i++) {
+            Arrays.fill(rows[i], 0);
+            rowFill[i] = 0;
+        }
+        head = 0;
+        Arrays.fill(columnTops, height);
+        version++;
+    }
+
+    private int slot(int y) {
+        int slot = head + y;
+        return slot >= height ? slot - height : slot;
+    }
+
+    /**
+     * Gets the color index of a cell
+     * @param y Row, 0 is the top of the board
+     * @param x Column
+     * @return Color index, 0 if empty
+     */
+    public int get(int y, int x) {
+        return rows[slot(y)][x];
+    }
+
+    /**
+     * Gets a row of the grid. The array must not be modified.
+     * @param y Row, 0 is the top of the board
+     * @return The cells of the row
+     */
+    public int[] getRow(int y) {
+        return rows[slot(y)];
+    }
+
+    /**
+     * Sets a cell to a block color
+     * @param y Row, 0 is the top of the board
+     * @param x Column
+     * @param color Color index, must not be 0
+     */
+    public void set(int y, int x, int color) {
+        int slot = slot(y);
+        if (rows[slot][x] == 0) {
+            rowFill[slot]++;
+        }
+        rows[slot][x] = color;
+        if (y < columnTops[x]) {
+            columnTops[x] = y;
+        }
+        version++;
+    }
+
+    /**
+     * Checks if every cell of a row is occupied
+     * @param y Row, 0 is the top of the board
+     * @return true if the row is full
+     */
+    public boolean isRowFull(int y) {
+        return rowFill[slot(y)] == width;
+    }
+
+    /**
+     * Removes all full rows between firstRow and lastRow and lets the rows
+     * above them fall. Rows outside that range are assumed not to be full.
+     * @param firstRow First row that may be full
+     * @param lastRow Row after the last row that may be full
+     * @return Number of rows removed
+     */
+    public int clearFullRows(int firstRow, int lastRow) {
+        firstRow = Math.max(0, firstRow);
+        lastRow = Math.min(height, lastRow);
+
+        int linesCleared = 0;
+        int lowestCleared = -1;
+        int highestCleared = -1;
+        for (int y = firstRow; y < lastRow; y++) {
+            clearedRows[y] = isRowFull(y);
+            if (clearedRows[y]) {
+                if (highestCleared < 0) highestCleared = y;
+                lowestCleared = y;
+                linesCleared++;
+            }
+        }
+        if (linesCleared == 0) {
+            return 0;
+        }
+
+        int stackTop = getHighestRow();
+        int rowsAbove = lowestCleared - stackTop + 1;
+        int rowsBelow = height - highestCleared;
+        if (rowsAbove <= rowsBelow) {
+            compactDown(stackTop, lowestCleared);
+        } else {
+            compactUp(highestCleared, linesCleared);
+        }
+
+        updateColumnTops(linesCleared);
+        for (int y = firstRow; y < lastRow; y++) {
+            clearedRows[y] = false;
+        }
+        version++;
+        return linesCleared;
+    }
+
+    /**
+     * Moves the rows between the top of the stack and the lowest cleared row
+     * down over the cleared rows, then reuses the cleared rows as empty rows
+     * at the top of the stack.
+     */
+    private void compactDown(int stackTop, int lowestCleared) {
+        int write = lowestCleared;
+        int recycled = 0;
+        for (int read = lowestCleared; read >= stackTop; read--) {
+            int readSlot = slot(read);
+            if (clearedRows[read]) {
+                recycledRows[recycled++] = rows[readSlot];
+            } else {
+                int writeSlot = slot(write);
+                rows[writeSlot] = rows[readSlot];
+                rowFill[writeSlot] = rowFill[readSlot];
+                write--;
+            }
+        }
+        for (int i = 0; i < recycled; i++) {
+            int writeSlot = slot(write - i);
+            Arrays.fill(recycledRows[i], 0);
+            rows[writeSlot] = recycledRows[i];
+            rowFill[writeSlot] = 0;
+            recycledRows[i] = null;
+        }
+    }
+
+    /**
+     * Moves the rows between the highest cleared row and the floor up over the
+     * cleared rows, puts the cleared rows at the end of the buffer and rotates
+     * the buffer so they become empty rows at the top of the board.
+     */
+    private void compactUp(int highestCleared, int linesCleared) {
+        int write = highestCleared;
+        int recycled = 0;
+        for (int read = highestCleared; read < height; read++) {
+            int readSlot = slot(read);
+            if (clearedRows[read]) {
+                recycledRows[recycled++] = rows[readSlot];
+            } else {
+                int writeSlot = slot(write);
+                rows[writeSlot] = rows[readSlot];
+                rowFill[writeSlot] = rowFill[readSlot];
+                write++;
+            }
+        }
+        for (int i = 0; i < recycled; i++) {
+            int writeSlot = slot(write + i);
+            Arrays.fill(recycledRows[i], 0);
+            rows[writeSlot] = recycledRows[i];
+            rowFill[writeSlot] = 0;
+            recycledRows[i] = null;
+        }
+
+        // The empty rows now fill the last linesCleared logical rows,
+        // rotating the head by linesCleared moves them to the top
+        head = slot(height - linesCleared);
+    }
+
+    /**
+     * Updates the column heights after rows were removed. A column whose top
+     * block was not in a cleared row simply sank; otherwise the next block down
+     * is found from where the column was.
+     */
+    private void updateColumnTops(int linesCleared) {
+        for (int x = 0; x < width; x++) {
+            int top = columnTops[x];
+            if (top >= height) continue;
+
+            if (!clearedRows[top]) {
+                columnTops[x] = top + linesCleared;
+            } else {
+                int y = top + linesCleared;
+                while (y < height && get(y, x) == 0) {
+                    y++;
+                }
+                columnTops[x] = y;
+            }
+        }
+    }
+
+    /**
+     * Gets the row of the highest block in a column
+     * @param x Column
+     * @return Row index of the top block, or the board height if the column is empty
+     */
+    public int getColumnTop(int x) {
+        return columnTops[x];
+    }
+
+    /**
+     * Gets the row of the highest block on the board
+     * @return Row index of the highest block, or the board height if empty
+     */
+    public int getHighestRow() {
+        int highest = height;
+        for (int top : columnTops) {
+            highest = Math.min(highest, top);
+        }
+        return highest;
+    }
+
+    /**
+     * Returns a counter that changes whenever locked blocks change
+     * @return The grid version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Copies the grid into rows ordered from the top of the board
+     * @return Array of row references in logical order
+     */
+    public int[][] toRows() {
+        int[][] ordered = new int[height][];
+        for (int y = 0; y < height; y++) {
+            ordered[y] = rows[slot(y)];
+        }
+        return ordered;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,485 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps a remote copy of a board in step with a TetrisEngine using few bytes.
+ * The Encoder watches one engine and produces numbered frames: an occasional
+ * KEYFRAME holding the whole state with the playfield packed three bits per
+ * cell, and otherwise a DELTA listing only what changed since the last frame.
+ * A delta is a few one to eight byte operations, such as the piece falling a
+ * row, moving or turning, locking with the mask of rows it cleared, or a new
+ * piece appearing. The Decoder applies frames to a mirror engine. A frame
+ * number that skips ahead, or a lock whose cleared rows do not match the
+ * mirror, means the copy can no longer be trusted, so the decoder ignores
+ * deltas until the next keyframe and tells the caller to ask for one.
+ */
+public final class BoardSync {
+    // Operations inside a delta, the low nibble of the first byte
+    private static final int OP_FALL = 1;      // piece moved down one row
+    private static final int OP_MOVE = 2;      // rotation in high nibble, then x, y
+    private static final int OP_PIECE = 3;     // rotation in high nibble, then type, x, y
+    private static final int OP_LOCK = 4;      // rotation and CLEARED_FLAG in high nibble, then type, x, y, [row mask int]
+    private static final int OP_NEXT = 5;      // type in high nibble
+    private static final int OP_HOLD = 6;      // rotation in high nibble, then type
+    private static final int OP_SCORE = 7;     // then score, lines, level
+    private static final int OP_GAME_OVER = 8;
+    private static final int CLEARED_FLAG = 0x80;
+    private static final int MAX_LOCK_BYTES = 8;
+    // Piece, next, hold, score and game over operations together
+    private static final int MAX_STATE_CHANGE_BYTES = 16;
+
+    private static final int FLAG_GAME_OVER = 1;
+    private static final int CELL_BITS = 3;
+
+    // Offsets within a frame
+    private static final int SEQUENCE_OFFSET = 2;
+    public static final int KEYFRAME_HEADER_BYTES = 18;
+    public static final int DELTA_HEADER_BYTES = 5;
+    public static final int DELTA_LENGTH_OFFSET = 4;
+    public static final int MAX_DELTA_BYTES = 255;
+
+    // A keyframe is sent after this many deltas even if nothing was lost
+    private static final int KEYFRAME_INTERVAL = 128;
+
+    private BoardSync() {
+    }
+
+    /**
+     * Gets the size of a keyframe for a board
+     * @param width Board width in blocks
+     * @param height Board height in blocks
+     * @return Keyframe size in bytes
+     */
+    public static int keyframeBytes(int width, int height) {
+        return KEYFRAME_HEADER_BYTES + (width * height * CELL_BITS + 7) / 8;
+    }
+
+    /**
+     * Produces frames for one engine. Install it as the engine's listener so
+     * locks are seen as they happen, then call encode once per send.
+     */
+    public static class Encoder implements TetrisEngine.Listener {
+        private final TetrisEngine engine;
+        private final int player;
+        private final ByteBuffer operations = ByteBuffer.allocate(MAX_DELTA_BYTES - DELTA_HEADER_BYTES);
+        private final ByteBuffer frame;
+        private int sequence = 0;
+        private boolean keyframeNeeded = true;
+        private boolean overflowed = false;
+        private int deltasSinceKeyframe = 0;
+
+        // What the receivers were last told
+        private int sentSerial;
+        private int sentX;
+        private int sentY;
+        private int sentRotation;
+        private int sentNext;
+        private int sentHold;
+        private int sentScore;
+        private int sentLines;
+        private int sentLevel;
+        private boolean sentGameOver;
+
+        /**
+         * Constructor for an encoder
+         * @param engine The engine to follow
+         * @param player Board number written in every frame
+         */
+        public Encoder(TetrisEngine engine, int player) {
+            if (engine.getHeight() > Integer.SIZE) {
+                // Cleared rows travel as an int mask, one bit per row
+                throw new IllegalArgumentException("Board height " + engine.getHeight() + " exceeds " + Integer.SIZE);
+            }
+            this.engine = engine;
+            this.player = player;
+            this.frame = ByteBuffer.allocate(Math.max(MAX_DELTA_BYTES,
+                keyframeBytes(engine.getWidth(), engine.getHeight())));
+        }
+
+        @Override
+        public void pieceLocked(Tetromino piece, int x, int y, int linesCleared, int stackHeight) {
+            int clearedRows = clearedRowMask(engine);
+            if (operations.remaining() < MAX_LOCK_BYTES + MAX_STATE_CHANGE_BYTES) {
+                // More happened than one delta can hold, send everything instead
+                overflowed = true;
+                return;
+            }
+            operations.put((byte) (OP_LOCK | engine.getRotation() << 4 | (clearedRows != 0 ? CLEARED_FLAG : 0)))
+                      .put((byte) piece.getType())
+                      .put((byte) x)
+                      .put((byte) y);
+            if (clearedRows != 0) {
+                operations.putInt(clearedRows);
+            }
+        }
+
+        @Override
+        public void boardReset() {
+            // A cleared board is not a delta operation
+            keyframeNeeded = true;
+        }
+
+        /**
+         * Sends a keyframe with the next frame, for example when a new receiver joins
+         */
+        public void requestKeyframe() {
+            keyframeNeeded = true;
+        }
+
+        /**
+         * Builds the frame describing changes since the last call
+         * @return The frame, ready to be copied to receivers, or null if nothing changed
+         */
+        public ByteBuffer encode() {
+            if (keyframeNeeded || overflowed || deltasSinceKeyframe >= KEYFRAME_INTERVAL) {
+                sequence++;
+                writeKeyframe(frame, sequence);
+                return frame;
+            }
+
+            addStateChanges();
+            if (operations.position() == 0) {
+                return null;
+            }
+
+            sequence++;
+            deltasSinceKeyframe++;
+            operations.flip();
+            frame.clear();
+            frame.put((byte) NetProtocol.DELTA)
+                 .put((byte) player)
+                 .putShort((short) sequence)
+                 .put((byte) (DELTA_HEADER_BYTES + operations.remaining()))
+                 .put(operations)
+                 .flip();
+            operations.clear();
+            return frame;
+        }
+
+        /**
+         * Builds a keyframe for a receiver that lost track, without changing
+         * the frames other receivers get
+         * @return The keyframe
+         */
+        public ByteBuffer encodeResync() {
+            ByteBuffer resync = ByteBuffer.allocate(keyframeBytes(engine.getWidth(), engine.getHeight()));
+            putKeyframe(resync, engine, player, sequence);
+            return resync;
+        }
+
+        private void addStateChanges() {
+            Tetromino piece = engine.getCurrentPiece();
+            int x = engine.getCurrentX();
+            int y = engine.getCurrentY();
+            int rotation = engine.getRotation();
+
+            if (engine.getPieceSerial() != sentSerial) {
+                if (piece != null) {
+                    operations.put((byte) (OP_PIECE | rotation << 4))
+                              .put((byte) piece.getType())
+                              .put((byte) x)
+                              .put((byte) y);
+                }
+            } else if (x != sentX || rotation != sentRotation || y < sentY || y > sentY + 1) {
+                operations.put((byte) (OP_MOVE | rotation << 4)).put((byte) x).put((byte) y);
+            } else if (y == sentY + 1) {
+                operations.put((byte) OP_FALL);
+            }
+
+            int next = typeOf(engine.getNextPiece());
+            if (next != sentNext) {
+                operations.put((byte) (OP_NEXT | next << 4));
+            }
+
+            int hold = typeOf(engine.getHoldPiece()) | engine.getHoldRotation() << 4;
+            if (hold != sentHold) {
+                operations.put((byte) (OP_HOLD | engine.getHoldRotation() << 4)).put((byte) (hold & 0xF));
+            }
+
+            if (engine.getScore() != sentScore || engine.getLines() != sentLines || engine.getLevel() != sentLevel) {
+                operations.put((byte) OP_SCORE)
+                          .putInt(engine.getScore())
+                          .putShort((short) engine.getLines())
+                          .put((byte) engine.getLevel());
+            }
+
+            if (engine.isGameOver() && !sentGameOver) {
+                operations.put((byte) OP_GAME_OVER);
+            }
+
+            rememberSent();
+        }
+
+        private void writeKeyframe(ByteBuffer buffer, int frameSequence) {
+            putKeyframe(buffer, engine, player, frameSequence);
+            operations.clear();
+            keyframeNeeded = false;
+            overflowed = false;
+            deltasSinceKeyframe = 0;
+            rememberSent();
+        }
+
+        private void rememberSent() {
+            sentSerial = engine.getPieceSerial();
+            sentX = engine.getCurrentX();
+            sentY = engine.getCurrentY();
+            sentRotation = engine.getRotation();
+            sentNext = typeOf(engine.getNextPiece());
+            sentHold = typeOf(engine.getHoldPiece()) | engine.getHoldRotation() << 4;
+            sentScore = engine.getScore();
+            sentLines = engine.getLines();
+            sentLevel = engine.getLevel();
+            sentGameOver = engine.isGameOver();
+        }
+    }
+
+    /**
+     * Applies frames from one Encoder to a mirror engine
+     */
+    public static class Decoder {
+        private final byte[] cells;
+        private boolean synced = false;
+        private int expectedSequence;
+
+        /**
+         * Constructor for a decoder
+         * @param width Board width in blocks
+         * @param height Board height in blocks
+         */
+        public Decoder(int width, int height) {
+            cells = new byte[width * height];
+        }
+
+        /**
+         * Whether the mirror is known to match the sender
+         * @return false until the first keyframe, and after a lost or inconsistent frame
+         */
+        public boolean isSynced() {
+            return synced;
+        }
+
+        /**
+         * Gets the number of the last frame applied
+         * @return Frame number, only meaningful while synced
+         */
+        public int getSequence() {
+            return (expectedSequence - 1) & 0xFFFF;
+        }
+
+        /**
+         * Applies a keyframe
+         * @param frame Buffer positioned at the start of the frame, left after its end
+         * @param engine Mirror engine
+         */
+        public void applyKeyframe(ByteBuffer frame, TetrisEngine engine) {
+            frame.position(frame.position() + SEQUENCE_OFFSET);
+            int sequence = frame.getShort() & 0xFFFF;
+            int flags = frame.get();
+            int piece = frame.get();
+            int x = frame.get();
+            int y = frame.get();
+            int next = frame.get();
+            int hold = frame.get();
+            int score = frame.getInt();
+            int lines = frame.getShort() & 0xFFFF;
+            int level = frame.get() & 0xFF;
+            frame.get();
+
+            int bits = 0;
+            int bitCount = 0;
+            for (int i = 0; i < cells.length; i++) {
+                if (bitCount < CELL_BITS) {
+                    bits = bits << 8 | (frame.get() & 0xFF);
+                    bitCount += 8;
+                }
+                bitCount -= CELL_BITS;
+                cells[i] = (byte) (bits >>> bitCount & 7);
+            }
+
+            engine.loadBoard(cells);
+            setPiece(engine, piece & 0xF, piece >> 4 & 3, x, y);
+            setNext(engine, next);
+            setHold(engine, hold & 0xF, hold >> 4 & 3);
+            engine.loadScore(score, lines, level, (flags & FLAG_GAME_OVER) != 0);
+
+            synced = true;
+            expectedSequence = (sequence + 1) & 0xFFFF;
+        }
+
+        /**
+         * Applies a delta
+         * @param frame Buffer positioned at the start of the frame, left after its end
+         * @param engine Mirror engine
+         * @return false if the mirror is out of step and a keyframe is needed
+         */
+        public boolean applyDelta(ByteBuffer frame, TetrisEngine engine) {
+            int start = frame.position();
+            int end = start + (frame.get(start + DELTA_LENGTH_OFFSET) & 0xFF);
+            int sequence = frame.getShort(start + SEQUENCE_OFFSET) & 0xFFFF;
+            frame.position(start + DELTA_HEADER_BYTES);
+
+            if (synced && sequence != expectedSequence) {
+                // A frame was lost, later deltas would build on a state we do not have
+                synced = false;
+            }
+            if (!synced) {
+                frame.position(end);
+                return false;
+            }
+            expectedSequence = (sequence + 1) & 0xFFFF;
+
+            while (frame.position() < end) {
+                int op = frame.get();
+                int argument = op >> 4 & 0xF;
+                switch (op & 0xF) {
+                    case OP_FALL:
+                        engine.setCurrentPiece(engine.getCurrentPiece(), engine.getRotation(),
+                            engine.getCurrentX(), engine.getCurrentY() + 1);
+                        break;
+                    case OP_MOVE: {
+                        int x = frame.get();
+                        int y = frame.get();
+                        Tetromino piece = engine.getCurrentPiece();
+                        if (piece == null) {
+                            synced = false;
+                            break;
+                        }
+                        setPiece(engine, piece.getType(), argument & 3, x, y);
+                        break;
+                    }
+                    case OP_PIECE: {
+                        int type = frame.get();
+                        int x = frame.get();
+                        int y = frame.get();
+                        engine.setCurrentPiece(TetrisEngine.createPiece(type, argument & 3), argument & 3, x, y);
+                        break;
+                    }
+                    case OP_LOCK: {
+                        int type = frame.get();
+                        int x = frame.get();
+                        int y = frame.get();
+                        int expectedRows = (op & CLEARED_FLAG) != 0 ? frame.getInt() : 0;
+                        engine.lockRemotePiece(TetrisEngine.createPiece(type, argument & 3), x, y);
+                        if (clearedRowMask(engine) != expectedRows) {
+                            synced = false;
+                        }
+                        break;
+                    }
+                    case OP_NEXT:
+                        setNext(engine, argument);
+                        break;
+                    case OP_HOLD:
+                        setHold(engine, frame.get(), argument & 3);
+                        break;
+                    case OP_SCORE: {
+                        int score = frame.getInt();
+                        int lines = frame.getShort() & 0xFFFF;
+                        int level = frame.get() & 0xFF;
+                        engine.loadScore(score, lines, level, engine.isGameOver());
+                        break;
+                    }
+                    case OP_GAME_OVER:
+                        engine.loadScore(engine.getScore(), engine.getLines(), engine.getLevel(), true);
+                        break;
+                    default:
+                        synced = false;
+                }
+                if (!synced) {
+                    frame.position(end);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void setPiece(TetrisEngine engine, int type, int rotation, int x, int y) {
+            Tetromino current = engine.getCurrentPiece();
+            if (type == 0) {
+                engine.setCurrentPiece(null, 0, x, y);
+            } else if (current != null && current.getType() == type && engine.getRotation() == rotation) {
+                engine.setCurrentPiece(current, rotation, x, y);
+            } else {
+                engine.setCurrentPiece(TetrisEngine.createPiece(type, rotation), rotation, x, y);
+            }
+        }
+
+        // Previews keep their piece object when the type is unchanged so panels are not repainted needlessly
+        private static void setNext(TetrisEngine engine, int type) {
+            Tetromino next = engine.getNextPiece();
+            if (type == 0) {
+                engine.setNextPiece(null);
+            } else if (next == null || next.getType() != type) {
+                engine.setNextPiece(new Tetromino(type));
+            }
+        }
+
+        private static void setHold(TetrisEngine engine, int type, int rotation) {
+            Tetromino hold = engine.getHoldPiece();
+            if (type == 0) {
+                engine.setHoldPiece(null, 0);
+            } else if (hold == null || hold.getType() != type || engine.getHoldRotation() != rotation) {
+                engine.setHoldPiece(TetrisEngine.createPiece(type, rotation), rotation);
+            }
+        }
+    }
+
+    /**
+     * Writes a keyframe of an engine's state
+     * @param buffer Buffer to write to, cleared first and flipped after
+     * @param engine The board
+     * @param player Board number
+     * @param sequence Number of the last frame the state includes
+     */
+    public static void putKeyframe(ByteBuffer buffer, TetrisEngine engine, int player, int sequence) {
+        Tetromino piece = engine.getCurrentPiece();
+        buffer.clear();
+        buffer.put((byte) NetProtocol.KEYFRAME)
+              .put((byte) player)
+              .putShort((short) sequence)
+              .put((byte) (engine.isGameOver() ? FLAG_GAME_OVER : 0))
+              .put((byte) (typeOf(piece) | engine.getRotation() << 4))
+              .put((byte) engine.getCurrentX())
+              .put((byte) engine.getCurrentY())
+              .put((byte) typeOf(engine.getNextPiece()))
+              .put((byte) (typeOf(engine.getHoldPiece()) | engine.getHoldRotation() << 4))
+              .putInt(engine.getScore())
+              .putShort((short) engine.getLines())
+              .put((byte) engine.getLevel())
+              .put((byte) 0);
+
+        // Pack cells three bits at a time, color indexes are 0 to 7
+        BoardGrid board = engine.getBoard();
+        long bits = 0;
+        int bitCount = 0;
+        for (int y = 0; y < engine.getHeight(); y++) {
+            int[] row = board.getRow(y);
+            for (int x = 0; x < engine.getWidth(); x++) {
+                bits = bits << CELL_BITS | row[x];
+                bitCount += CELL_BITS;
+                if (bitCount >= 8) {
+                    bitCount -= 8;
+                    buffer.put((byte) (bits >>> bitCount));
+                }
+            }
+        }
+        if (bitCount > 0) {
+            buffer.put((byte) (bits << (8 - bitCount)));
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Packs the rows the last locked piece cleared into the int mask sent with a lock,
+     * bit y for row y, which is why synced boards are at most 32 rows tall
+     */
+    private static int clearedRowMask(TetrisEngine engine) {
+        int mask = 0;
+        for (int i = 0; i < engine.getLastLinesCleared(); i++) {
+            mask |= 1 << engine.getLastClearedRow(i);
+        }
+        return mask;
+    }
+
+    private static int typeOf(Tetromino piece) {
+        return piece != null ? piece.getType() : 0;
+    }
+}
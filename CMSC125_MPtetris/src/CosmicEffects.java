@@ -1,10 +1,12 @@
 import java.awt.*;
 import java.awt.geom.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CosmicEffects {
     private final int width;
@@ -12,8 +14,6 @@ public class CosmicEffects {
     private final List<Star> stars;
     private final List<Particle> particles;
     private final Random random;
-    private final AtomicBoolean running;
-    private Thread animationThread;
     private List<GlowingShape> glowingShapes;
     private List<WaveEffect> waves;
     private float hueShift = 0;
@@ -21,6 +21,17 @@ public class CosmicEffects {
     private float gridPulse = 0;
     private long lastTime;
     private static final int PIXEL_SIZE = 2; // Size of each "pixel" in the effects
+    // Seconds the effects were tuned for per step, the speeds below are per step of this size
+    private static final float BASE_STEP = 0.016f;
+    /**
+     * Seconds one FrameScheduler frame advances the effects. Before the shared
+     * frame clock they were stepped by both their own thread and the board
+     * timer, two base steps per 16ms frame, and they keep that speed.
+     */
+    public static final float FRAME_STEP = 2 * BASE_STEP;
+    // Effects released by closed screens and boards, reused by the next one of the same size
+    private static final int POOL_LIMIT_PER_SIZE = 4;
+    private static final Map<Long, ArrayDeque<CosmicEffects>> pool = new HashMap<>();
     private static final Color[] TETRIS_COLORS = {
         new Color(255, 0, 0),    // Red
         new Color(0, 255, 255),  // Cyan
@@ -31,13 +42,44 @@ public class CosmicEffects {
         new Color(0, 128, 255)   // Blue
     };
 
+    /**
+     * Gets effects of the given size, reusing released ones when there are any
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @return Effects ready to update and draw
+     */
+    public static CosmicEffects obtain(int width, int height) {
+        synchronized (pool) {
+            ArrayDeque<CosmicEffects> free = pool.get(poolKey(width, height));
+            if (free != null && !free.isEmpty()) {
+                return free.pop();
+            }
+        }
+        return new CosmicEffects(width, height);
+    }
+
+    /**
+     * Builds effects ahead of time so the next screens or boards of this size start warm
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @param count How many to keep ready
+     */
+    public static void prewarm(int width, int height, int count) {
+        for (int i = 0; i < count; i++) {
+            new CosmicEffects(width, height).release();
+        }
+    }
+
+    private static long poolKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
     public CosmicEffects(int width, int height) {
         this.width = width;
         this.height = height;
         this.stars = new ArrayList<>();
         this.particles = new ArrayList<>();
         this.random = new Random();
-        this.running = new AtomicBoolean(true);
         this.glowingShapes = new ArrayList<>();
         this.waves = new ArrayList<>();
         this.lastTime = System.currentTimeMillis();
@@ -61,31 +103,25 @@ public class CosmicEffects {
                 random.nextFloat() * 360
             ));
         }
-
-        // Start animation thread
-        startAnimationThread();
     }
 
-    private void startAnimationThread() {
-        animationThread = new Thread(() -> {
-            while (running.get()) {
-                update();
-                try {
-                    Thread.sleep(16); // ~60 FPS
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
-        animationThread.setDaemon(true);
-        animationThread.start();
+    /**
+     * Advances the effects by one frame, called by the owner's FrameScheduler animation
+     */
+    public void update() {
+        update(FRAME_STEP);
     }
 
-    public void update() {
+    /**
+     * Advances the effects by a time step
+     * @param delta Seconds to advance
+     */
+    public void update(float delta) {
+        float steps = delta / BASE_STEP;
+
         // Update stars
         for (Star star : stars) {
-            star.update();
+            star.update(steps);
             if (star.y > height) {
                 star.y = 0;
                 star.x = random.nextInt(width);
@@ -95,23 +131,23 @@ public class CosmicEffects {
         // Update particles
         particles.removeIf(particle -> particle.life <= 0);
         for (Particle particle : particles) {
-            particle.update();
+            particle.update(steps);
         }
 
         // Update waves
-        waves.removeIf(wave -> !wave.update(0.016f));
+        waves.removeIf(wave -> !wave.update(delta));
 
         // Update glowing shapes
         for (GlowingShape shape : glowingShapes) {
-            shape.update(0.016f);
+            shape.update(delta);
         }
 
         // Update grid effects
-        gridRotation += 0.016f * 0.1f;
+        gridRotation += delta * 0.1f;
         gridPulse = (float)Math.sin(System.currentTimeMillis() / 1000.0) * 0.1f;
 
         // Update global hue shift
-        hueShift = (hueShift + 0.016f * 10) % 360;
+        hueShift = (hueShift + delta * 10) % 360;
     }
 
     public void draw(Graphics2D g2d) {
@@ -227,26 +263,25 @@ public class CosmicEffects {
         }
     }
 
-    public void cleanup() {
-        running.set(false);
-        if (animationThread != null) {
-            animationThread.interrupt();
-            try {
-                animationThread.join(100); // Wait for thread to finish with timeout
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-            animationThread = null;
-        }
-        
-        // Clear all collections
-        stars.clear();
+    /**
+     * Drops the particles and waves of the last game, keeping the background
+     */
+    public void reset() {
         particles.clear();
-        glowingShapes.clear();
         waves.clear();
-        
-        // Force garbage collection
-        System.gc();
+    }
+
+    /**
+     * Hands these effects back to the pool. The caller must not use them afterwards.
+     */
+    public void release() {
+        reset();
+        synchronized (pool) {
+            ArrayDeque<CosmicEffects> free = pool.computeIfAbsent(poolKey(width, height), key -> new ArrayDeque<>());
+            if (free.size() < POOL_LIMIT_PER_SIZE && !free.contains(this)) {
+                free.push(this);
+            }
+        }
     }
 
     private static class Star {
@@ -261,8 +296,8 @@ public class CosmicEffects {
             this.twinkleSpeed = twinkleSpeed;
         }
 
-        void update() {
-            y += 0.2f;
+        void update(float steps) {
+            y += 0.2f * steps;
         }
     }
 
@@ -285,11 +320,11 @@ public class CosmicEffects {
             this.size = 4f;
         }
 
-        void update() {
-            x += vx;
-            y += vy;
-            vy += 0.1f;
-            life--;
+        void update(float steps) {
+            x += vx * steps;
+            y += vy * steps;
+            vy += 0.1f * steps;
+            life -= steps;
         }
     }
 
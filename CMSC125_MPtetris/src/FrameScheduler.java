@@ -0,0 +1,115 @@
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One frame clock for every animated component.
+ * A single Swing timer ticks about 60 times a second on the event thread
+ * and runs the registered animations of the components that are showing.
+ * Components in hidden windows are skipped. Once a component's window is
+ * disposed it is unregistered, so animations cannot outlive their screens
+ * the way per-component timers did. The timer only runs while something is
+ * registered.
+ * All methods must be called on the event thread.
+ */
+public final class FrameScheduler {
+    private static final int FRAME_MILLIS = 16;
+
+    private static final class Entry {
+        final JComponent component;
+        final Runnable tick;
+        // Components start undisplayable until their window is packed
+        boolean wasDisplayable = false;
+        boolean removed = false;
+
+        Entry(JComponent component, Runnable tick) {
+            this.component = component;
+            this.tick = tick;
+        }
+    }
+
+    private static final List<Entry> entries = new ArrayList<>();
+    // Snapshot ticked each frame, rebuilt only after entries change
+    private static Entry[] frame = new Entry[0];
+    private static boolean entriesChanged = false;
+    private static Timer timer;
+
+    private FrameScheduler() {
+    }
+
+    /**
+     * Runs an animation step once per frame while the component is showing
+     * @param component The animated component
+     * @param tick Advances the animation and repaints what changed
+     */
+    public static void register(JComponent component, Runnable tick) {
+        entries.add(new Entry(component, tick));
+        entriesChanged = true;
+        if (timer == null) {
+            timer = new Timer(FRAME_MILLIS, e -> tickFrame());
+            timer.setCoalesce(true);
+        }
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Stops all animations registered for the component
+     * @param component The animated component
+     */
+    public static void unregister(JComponent component) {
+        if (remove(component)) {
+            entriesChanged = true;
+            stopIfIdle();
+        }
+    }
+
+    private static boolean remove(JComponent component) {
+        return entries.removeIf(entry -> {
+            if (entry.component != component) return false;
+            // Keeps it from running later in the frame that removed it
+            entry.removed = true;
+            return true;
+        });
+    }
+
+    private static void tickFrame() {
+        if (entriesChanged) {
+            frame = entries.toArray(new Entry[0]);
+            entriesChanged = false;
+        }
+
+        for (Entry entry : frame) {
+            if (entry.removed) continue;
+            JComponent component = entry.component;
+            if (component.isDisplayable()) {
+                entry.wasDisplayable = true;
+            } else if (entry.wasDisplayable) {
+                // The window was disposed
+                unregister(component);
+                continue;
+            }
+            if (!component.isShowing()) {
+                continue;
+            }
+
+            try {
+                entry.tick.run();
+            } catch (RuntimeException e) {
+                // One broken animation should not stop the others
+                System.err.println("Error animating " + component.getClass().getName() + ": " + e);
+            }
+        }
+    }
+
+    private static void stopIfIdle() {
+        if (entries.isEmpty() && timer != null) {
+            timer.stop();
+            // Let the last screen's components be collected
+            frame = new Entry[0];
+            entriesChanged = false;
+        }
+    }
+}
@@ -12,24 +12,32 @@ public class GameBoard extends JPanel {
     private final int BOARD_HEIGHT;
     private final int BLOCK_SIZE;
 
-    // Game state
-    private int[][] board;
-    private Tetromino currentPiece;
-    private Tetromino nextPiece;
-    private Tetromino holdPiece;
-    private boolean canHold = true;
-    private int currentX;
-    private int currentY;
-    private final Random random = new Random();
+    // Game state, the rules live in the engine
+    private final TetrisEngine engine;
     private final TetrisGameInterface gameInstance;
+    private final GameEventBus eventBus;
 
     // Messages
     private String message = null;
 
-    private int lastLinesCleared = 0;
+    private final SessionStats sessionStats = new SessionStats();
+    // Player number written with game and telemetry events, 0 in single player
+    private int playerNumber = 0;
+    // Level of the last LevelUp, only touched under the game lock
+    private int publishedLevel = 1;
+    // Sends this board to spectators, null when nobody can watch
+    private SpectatorBroadcaster.Feed spectatorFeed;
+    // Side panel values, written here and flushed by the window once per frame
+    private final HudModel hudModel = new HudModel();
 
     private CosmicEffects cosmicEffects;
-    private Timer effectsTimer;
+
+    // Input latency measurement, stamps are written and consumed on the EDT
+    private static final int MAX_PENDING_INPUTS = 16;
+    private final long[] pendingInputStamps = new long[MAX_PENDING_INPUTS];
+    private int pendingInputCount = 0;
+    private final LatencyHistogram inputLatency = new LatencyHistogram("input-to-frame");
+    private final LatencyHistogram lockWaitLatency = new LatencyHistogram("game-lock-wait");
 
     /**
      * Constructor for the game board
@@ -40,61 +48,126 @@ public class GameBoard extends JPanel {
      */
     public GameBoard(TetrisGameInterface game, int width, int height, int blockSize) {
         this.gameInstance = game;
+        this.eventBus = game.getEventBus();
         this.BOARD_WIDTH = width;
         this.BOARD_HEIGHT = height;
         this.BLOCK_SIZE = blockSize;
 
         // Initialize the game board
-        board = new int[BOARD_HEIGHT][BOARD_WIDTH];
+        engine = new TetrisEngine(BOARD_WIDTH, BOARD_HEIGHT, new Random());
+        engine.setListener(new EngineListener());
+        subscribeToEvents();
         setBackground(Color.BLACK);
 
         // Initialize cosmic effects
-        cosmicEffects = new CosmicEffects(width * blockSize, height * blockSize);
-        
-        // Start effects timer
-        effectsTimer = new Timer(16, _ -> {
-            cosmicEffects.update();
-            repaint();
-        });
-        effectsTimer.start();
+        cosmicEffects = CosmicEffects.obtain(width * blockSize, height * blockSize);
+        FrameScheduler.register(this, this::animateEffects);
     }
 
     /**
-     * Initializes the game by creating the first pieces
+     * Advances the background effects by one frame
      */
-    public void initializeGame() {
-        // Clear the board
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                board[i][j] = 0;
-            }
-        }
-
-        // Generate first pieces
-        nextPiece = Tetromino.getRandomPiece(random);
-        createNewPiece();
+    private void animateEffects() {
+        cosmicEffects.update();
+        repaint();
     }
 
     /**
-     * Creates a new piece and places it at the top of the board
+     * Runs with the game lock held, so it only keeps the statistics, the side
+     * panel model and the spectator feed in step with the board and queues
+     * events for the rest
      */
-    private void createNewPiece() {
-        currentPiece = nextPiece;
-        nextPiece = Tetromino.getRandomPiece(random);
+    private class EngineListener implements TetrisEngine.Listener {
+        @Override
+        public void pieceSpawned(Tetromino piece, Tetromino next) {
+            hudModel.setNextPiece(next);
+            eventBus.publish(new GameEventBus.PieceSpawned(playerNumber, piece, next));
+        }
 
-        // Update the next piece preview
-        gameInstance.updateNextPiecePanel(nextPiece);
+        @Override
+        public void pieceHeld(Tetromino held) {
+            sessionStats.recordHold();
+            hudModel.setHoldPiece(held);
+            eventBus.publish(new GameEventBus.PieceHeld(playerNumber, held));
+        }
 
-        // Place the new piece at the top center of the board
-        currentX = BOARD_WIDTH / 2 - currentPiece.getWidth() / 2;
-        currentY = 0;
+        @Override
+        public void pieceLocked(Tetromino piece, int x, int y, int linesCleared, int stackHeight) {
+            sessionStats.recordPiecePlaced(linesCleared, stackHeight);
+            if (spectatorFeed != null) {
+                spectatorFeed.pieceLocked(piece, x, y, linesCleared, stackHeight);
+            }
 
-        // Check if the new piece can be placed
-        if (!isValidPosition(currentX, currentY, currentPiece)) {
-            gameInstance.gameOver();
+            eventBus.publish(new GameEventBus.PieceLocked(playerNumber, piece, x, y, linesCleared, stackHeight));
+            if (engine.getLevel() > publishedLevel) {
+                publishedLevel = engine.getLevel();
+                eventBus.publish(new GameEventBus.LevelUp(playerNumber, publishedLevel));
+            }
+            if (linesCleared > 0) {
+                hudModel.setTotals(engine.getScore(), engine.getLines(), engine.getLevel());
+                eventBus.publish(new GameEventBus.LinesCleared(playerNumber, linesCleared,
+                    engine.getScore(), engine.getLines(), engine.getLevel()));
+            }
         }
 
-        // Piece can be placed, force repaint
+        @Override
+        public void boardReset() {
+            publishedLevel = 1;
+            hudModel.reset();
+            if (spectatorFeed != null) {
+                spectatorFeed.boardReset();
+            }
+        }
+
+        @Override
+        public void gameOver() {
+            eventBus.publish(new GameEventBus.GameOver(playerNumber,
+                engine.getScore(), engine.getLines(), engine.getLevel()));
+        }
+    }
+
+    /**
+     * Effects and telemetry for this board's events, run on the event thread
+     */
+    private void subscribeToEvents() {
+        eventBus.subscribe(GameEventBus.PieceSpawned.class, event -> {
+            if (event.player != playerNumber) return;
+            Telemetry.record(Telemetry.SPAWN, playerNumber, event.piece.getType());
+        });
+        eventBus.subscribe(GameEventBus.PieceHeld.class, event -> {
+            if (event.player != playerNumber) return;
+            Telemetry.record(Telemetry.HOLD, playerNumber, event.held.getType());
+        });
+        eventBus.subscribe(GameEventBus.PieceLocked.class, event -> {
+            if (event.player != playerNumber) return;
+            Telemetry.record(Telemetry.LOCK, playerNumber, Telemetry.pack(event.piece.getType(), event.stackHeight));
+            if (event.linesCleared > 0) {
+                Telemetry.record(Telemetry.CLEAR, playerNumber, event.linesCleared);
+            }
+            if (cosmicEffects == null) return;
+
+            // Trigger drop effect at the piece's position
+            int[][] shape = event.piece.getShape();
+            int centerX = (event.x + shape[0].length/2) * BLOCK_SIZE;
+            int centerY = (event.y + shape.length/2) * BLOCK_SIZE;
+            cosmicEffects.addPieceDropEffect(centerX, centerY);
+
+            if (event.linesCleared > 0) {
+                // Trigger line clear effects
+                for (int i = event.y; i < event.y + shape.length; i++) {
+                    cosmicEffects.addLineClearEffect(i * BLOCK_SIZE);
+                }
+            }
+        });
+    }
+
+    /**
+     * Initializes the game by creating the first pieces
+     */
+    public void initializeGame() {
+        sessionStats.start();
+        engine.reset();
+        publishFrame();
         repaint();
     }
 
@@ -102,34 +175,12 @@ public class GameBoard extends JPanel {
      * Holds the current piece and swaps it with the held piece
      */
     public void holdCurrentPiece() {
-        if (!canHold) {
-            return;
-        }
-
-        // First time holding a piece
-        if (holdPiece == null) {
-            holdPiece = currentPiece;
-            gameInstance.updateHoldPiecePanel(holdPiece);
-            createNewPiece();
-        } else {
-            // Swap current and held pieces
-            Tetromino temp = currentPiece;
-            currentPiece = holdPiece;
-            holdPiece = temp;
-
-            // Update hold preview
-            gameInstance.updateHoldPiecePanel(holdPiece);
-
-            // Reset position
-            currentX = BOARD_WIDTH / 2 - currentPiece.getWidth() / 2;
-            currentY = 0;
+        if (engine.isGameOver()) return;
+        if (engine.hold()) {
+            publishFrame();
+            // Force repaint
+            repaint();
         }
-
-        // Can't hold again until a piece is placed
-        canHold = false;
-
-        // Force repaint
-        repaint();
     }
 
     /**
@@ -137,12 +188,7 @@ public class GameBoard extends JPanel {
      * @return true if piece was moved, false otherwise
      */
     public boolean moveCurrentPieceLeft() {
-        if (isValidPosition(currentX - 1, currentY, currentPiece)) {
-            currentX--;
-            repaint();
-            return true;
-        }
-        return false;
+        return recordMove(engine.moveLeft());
     }
 
     /**
@@ -150,12 +196,7 @@ public class GameBoard extends JPanel {
      * @return true if piece was moved, false otherwise
      */
     public boolean moveCurrentPieceRight() {
-        if (isValidPosition(currentX + 1, currentY, currentPiece)) {
-            currentX++;
-            repaint();
-            return true;
-        }
-        return false;
+        return recordMove(engine.moveRight());
     }
 
     /**
@@ -163,12 +204,17 @@ public class GameBoard extends JPanel {
      * @return true if piece was moved, false otherwise
      */
     public boolean moveCurrentPieceDown() {
-        if (isValidPosition(currentX, currentY + 1, currentPiece)) {
-            currentY++;
+        return recordMove(engine.moveDown());
+    }
+
+    private boolean recordMove(boolean moved) {
+        if (moved) {
+            Telemetry.record(Telemetry.MOVE, playerNumber,
+                Telemetry.pack(engine.getCurrentX(), engine.getCurrentY()));
+            publishFrame();
             repaint();
-            return true;
         }
-        return false;
+        return moved;
     }
 
     /**
@@ -176,65 +222,43 @@ public class GameBoard extends JPanel {
      * @return true if piece was rotated, false otherwise
      */
     public boolean rotateCurrentPiece() {
-        if (currentPiece == null || gameInstance.isGameOver()) return false;
+        if (engine.getCurrentPiece() == null || gameInstance.isGameOver()) return false;
 
-        Tetromino rotated = currentPiece.getRotated();
-        if (isValidPosition(currentX, currentY, rotated)) {
-            currentPiece = rotated;
-            
-            // Trigger rotation effect
-            int centerX = (currentX + currentPiece.getShape()[0].length/2) * BLOCK_SIZE;
-            int centerY = (currentY + currentPiece.getShape().length/2) * BLOCK_SIZE;
-            cosmicEffects.addRotationEffect(centerX, centerY);
-
-            repaint();
-            return true;
-        }
-
-        // Wall kick - try to adjust position to make rotation possible
-        // Try moving left
-        if (isValidPosition(currentX - 1, currentY, rotated)) {
-            currentX--;
-            currentPiece = rotated;
-            repaint();
-            return true;
+        int oldX = engine.getCurrentX();
+        int oldY = engine.getCurrentY();
+        if (!engine.rotate()) {
+            return false;
         }
 
-        // Try moving right
-        if (isValidPosition(currentX + 1, currentY, rotated)) {
-            currentX++;
-            currentPiece = rotated;
-            repaint();
-            return true;
-        }
+        int currentX = engine.getCurrentX();
+        int currentY = engine.getCurrentY();
+        Telemetry.record(Telemetry.ROTATE, playerNumber, Telemetry.pack(currentX, currentY));
 
-        // Try moving up
-        if (isValidPosition(currentX, currentY - 1, rotated)) {
-            currentY--;
-            currentPiece = rotated;
-            repaint();
-            return true;
+        // Trigger rotation effect, unless a wall kick moved the piece
+        if (currentX == oldX && currentY == oldY) {
+            int[][] shape = engine.getCurrentPiece().getShape();
+            int centerX = (currentX + shape[0].length/2) * BLOCK_SIZE;
+            int centerY = (currentY + shape.length/2) * BLOCK_SIZE;
+            cosmicEffects.addRotationEffect(centerX, centerY);
         }
 
-        return false;
+        publishFrame();
+        repaint();
+        return true;
     }
 
     /**
      * Drops the current piece to the bottom immediately
      */
     public void hardDrop() {
-        int dropDistance = 0;
-
-        // Find how far the piece can drop
-        while (isValidPosition(currentX, currentY + dropDistance + 1, currentPiece)) {
-            dropDistance++;
-        }
+        // The game over event may not have been handled yet
+        if (engine.getCurrentPiece() == null || engine.isGameOver()) return;
 
-        // Move piece down
-        currentY += dropDistance;
-
-        // Place the piece
-        placePiece();
+        // Move piece down and place it
+        TetrisEvents.PiecePlaced placedEvent = beginPlacedEvent();
+        engine.hardDrop();
+        publishFrame();
+        afterPlacePiece(placedEvent);
 
         // Force repaint
         repaint();
@@ -244,128 +268,41 @@ public class GameBoard extends JPanel {
      * Places the current piece on the board and creates a new piece
      */
     public void placePiece() {
-        if (currentPiece == null) return;
-
-        int[][] shape = currentPiece.getShape();
-        int color = currentPiece.getColor();
+        if (engine.getCurrentPiece() == null || engine.isGameOver()) return;
 
-        // Place the piece on the board
-        for (int i = 0; i < shape.length; i++) {
-            for (int j = 0; j < shape[i].length; j++) {
-                if (shape[i][j] == 1) {
-                    board[currentY + i][currentX + j] = color;
-                }
-            }
-        }
-
-        // Trigger drop effect at the piece's position
-        int centerX = (currentX + shape[0].length/2) * BLOCK_SIZE;
-        int centerY = (currentY + shape.length/2) * BLOCK_SIZE;
-        cosmicEffects.addPieceDropEffect(centerX, centerY);
-
-        // Check for completed lines
-        int linesCleared = clearLines();
-        if (linesCleared > 0) {
-            // Trigger line clear effects
-            for (int i = currentY; i < currentY + shape.length; i++) {
-                cosmicEffects.addLineClearEffect(i * BLOCK_SIZE);
-            }
-            gameInstance.updateScore(linesCleared);
-        }
-
-        // Get next piece
-        currentPiece = nextPiece;
-        nextPiece = Tetromino.getRandomPiece(random);
-        gameInstance.updateNextPiecePanel(nextPiece);
-
-        // Reset position
-        currentX = BOARD_WIDTH / 2 - currentPiece.getShape()[0].length / 2;
-        currentY = 0;
-
-        // Reset hold ability
-        canHold = true;
+        TetrisEvents.PiecePlaced placedEvent = beginPlacedEvent();
+        engine.lockPiece();
+        publishFrame();
+        afterPlacePiece(placedEvent);
+    }
 
-        // Check if game is over
-        if (!isValidPosition(currentX, currentY, currentPiece)) {
-            gameInstance.gameOver();
-        }
+    private TetrisEvents.PiecePlaced beginPlacedEvent() {
+        TetrisEvents.PiecePlaced placedEvent = new TetrisEvents.PiecePlaced();
+        placedEvent.begin();
+        placedEvent.pieceType = engine.getCurrentPiece().getType();
+        return placedEvent;
+    }
 
-        // Play sound effect
-        if (gameInstance instanceof TetrisGame) {
-            ((TetrisGame) gameInstance).playPieceDropSound();
-        } else if (gameInstance instanceof TwoPlayerTetrisGame) {
-            ((TwoPlayerTetrisGame) gameInstance).playPieceDropSound();
+    private void afterPlacePiece(TetrisEvents.PiecePlaced placedEvent) {
+        if (placedEvent.shouldCommit()) {
+            placedEvent.linesCleared = engine.getLastLinesCleared();
+            placedEvent.stackHeight = engine.getStackHeight();
+            placedEvent.commit();
         }
     }
 
-    private int clearLines() {
-        int linesCleared = 0;
-
-        // Check each row from bottom to top
-        for (int i = BOARD_HEIGHT - 1; i >= 0; i--) {
-            boolean rowFull = true;
-
-            // Check if row is full
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] == 0) {
-                    rowFull = false;
-                    break;
-                }
-            }
-
-            // If row is full, clear it and move lines above down
-            if (rowFull) {
-                linesCleared++;
-
-                // Move all rows above down
-                for (int k = i; k > 0; k--) {
-                    System.arraycopy(board[k - 1], 0, board[k], 0, BOARD_WIDTH);
-                }
-
-                // Clear top row
-                for (int j = 0; j < BOARD_WIDTH; j++) {
-                    board[0][j] = 0;
-                }
-
-                // Since we removed a line, we need to check this line again
-                i++;
-            }
+    private void publishFrame() {
+        if (spectatorFeed != null) {
+            spectatorFeed.publish();
         }
-
-        this.lastLinesCleared = linesCleared;
-        return linesCleared;
     }
 
     /**
-     * Checks if a piece can be placed at the specified position
-     * @param x X position to check
-     * @param y Y position to check
-     * @param piece Piece to check
-     * @return true if position is valid, false otherwise
+     * Calculates the height of the stack from the bottom of the board
+     * @return Number of rows from the floor up to the highest occupied row
      */
-    private boolean isValidPosition(int x, int y, Tetromino piece) {
-        int[][] shape = piece.getShape();
-
-        for (int i = 0; i < shape.length; i++) {
-            for (int j = 0; j < shape[i].length; j++) {
-                if (shape[i][j] == 1) {
-                    int newY = y + i;
-                    int newX = x + j;
-
-                    // Check if out of bounds
-                    if (newX < 0 || newX >= BOARD_WIDTH || newY >= BOARD_HEIGHT) {
-                        return false;
-                    }
-
-                    // Check if already occupied (and not above the board)
-                    if (newY >= 0 && board[newY][newX] != 0) {
-                        return false;
-                    }
-                }
-            }
-        }
-
-        return true;
+    public int getStackHeight() {
+        return engine.getStackHeight();
     }
 
     /**
@@ -394,6 +331,10 @@ public class GameBoard extends JPanel {
      */
     @Override
     protected void paintComponent(Graphics g) {
+        TetrisEvents.BoardPaint paintEvent = new TetrisEvents.BoardPaint();
+        paintEvent.begin();
+        int blocksDrawn = 0;
+
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
 
@@ -408,15 +349,19 @@ public class GameBoard extends JPanel {
         drawGrid(g2d);
 
         // Draw placed blocks with glow effect
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
+        BoardGrid board = engine.getBoard();
+        for (int i = board.getHighestRow(); i < BOARD_HEIGHT; i++) {
+            int[] row = board.getRow(i);
             for (int j = 0; j < BOARD_WIDTH; j++) {
-                if (board[i][j] != 0) {
-                    drawGlowingBlock(g2d, j * BLOCK_SIZE, i * BLOCK_SIZE, board[i][j]);
+                if (row[j] != 0) {
+                    drawGlowingBlock(g2d, j * BLOCK_SIZE, i * BLOCK_SIZE, row[j]);
+                    blocksDrawn++;
                 }
             }
         }
 
         // Draw current piece with glow effect
+        Tetromino currentPiece = engine.getCurrentPiece();
         if (currentPiece != null && !gameInstance.isGameOver()) {
             int[][] shape = currentPiece.getShape();
             int color = currentPiece.getColor();
@@ -424,9 +369,10 @@ public class GameBoard extends JPanel {
             for (int i = 0; i < shape.length; i++) {
                 for (int j = 0; j < shape[i].length; j++) {
                     if (shape[i][j] == 1) {
-                        int x = (currentX + j) * BLOCK_SIZE;
-                        int y = (currentY + i) * BLOCK_SIZE;
+                        int x = (engine.getCurrentX() + j) * BLOCK_SIZE;
+                        int y = (engine.getCurrentY() + i) * BLOCK_SIZE;
                         drawGlowingBlock(g2d, x, y, color);
+                        blocksDrawn++;
                     }
                 }
             }
@@ -441,6 +387,64 @@ public class GameBoard extends JPanel {
         if (message != null) {
             drawMessage(g2d);
         }
+
+        if (paintEvent.shouldCommit()) {
+            paintEvent.blocksDrawn = blocksDrawn;
+            paintEvent.commit();
+        }
+
+        // This frame is the first one reflecting any input stamped since the last paint
+        recordPresentedInputs();
+    }
+
+    /**
+     * Computes the stamp of a player input as it reaches the action handler,
+     * before any lock wait, so the time the key event waited in the AWT queue
+     * is counted exactly once.
+     * @param eventWhen Timestamp of the originating key event in milliseconds
+     * @param enteredNanos System.nanoTime() when the input reached the action handler
+     * @return The input stamp in System.nanoTime() units
+     */
+    public static long inputStamp(long eventWhen, long enteredNanos) {
+        long queuedMillis = Math.max(0, System.currentTimeMillis() - eventWhen);
+        return enteredNanos - queuedMillis * 1_000_000L;
+    }
+
+    /**
+     * Stamps a player input that changed the board so its latency is recorded
+     * when the first frame showing the change has been painted. Must be called on the EDT.
+     * @param stamp Stamp of the input from inputStamp, taken on entry to the handler
+     */
+    public void stampInput(long stamp) {
+        if (pendingInputCount < MAX_PENDING_INPUTS) {
+            pendingInputStamps[pendingInputCount++] = stamp;
+        }
+    }
+
+    /**
+     * Records how long an input handler waited for the game lock
+     * @param nanos Wait time in nanoseconds
+     */
+    public void recordLockWait(long nanos) {
+        lockWaitLatency.record(nanos);
+    }
+
+    private void recordPresentedInputs() {
+        if (pendingInputCount == 0) return;
+
+        long presented = System.nanoTime();
+        for (int i = 0; i < pendingInputCount; i++) {
+            long latency = presented - pendingInputStamps[i];
+            inputLatency.record(latency);
+
+            TetrisEvents.InputLatency latencyEvent = new TetrisEvents.InputLatency();
+            if (latencyEvent.shouldCommit()) {
+                latencyEvent.latency = latency;
+                latencyEvent.coalescedInputs = pendingInputCount;
+                latencyEvent.commit();
+            }
+        }
+        pendingInputCount = 0;
     }
 
     private void drawGrid(Graphics2D g2d) {
@@ -469,24 +473,14 @@ public class GameBoard extends JPanel {
     }
 
     private void drawGlowingBlock(Graphics2D g2d, int x, int y, int colorIndex) {
-        Color[] colors = {
-            Color.BLACK,      // 0 - Empty
-            new Color(0, 255, 255),  // 1 - I piece (Cyan)
-            new Color(0, 0, 255),    // 2 - J piece (Blue)
-            new Color(255, 165, 0),  // 3 - L piece (Orange)
-            new Color(255, 255, 0),  // 4 - O piece (Yellow)
-            new Color(0, 255, 0),    // 5 - S piece (Green)
-            new Color(255, 0, 255),  // 6 - T piece (Magenta)
-            new Color(255, 0, 0)     // 7 - Z piece (Red)
-        };
-
-        Color baseColor = colors[colorIndex];
+        Color baseColor = BlockSprites.COLORS[colorIndex];
    
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
  
         float animT = (float)((Math.sin(System.currentTimeMillis() / 400.0) + 1) / 2.0);
         Color borderColor = baseColor;
+        Tetromino currentPiece = engine.getCurrentPiece();
         boolean isActive = (currentPiece != null && colorIndex == currentPiece.getColor());
         if (isActive) {
             Color accent = new Color(255, 255, 255);
@@ -518,31 +512,8 @@ public class GameBoard extends JPanel {
             );
         }
 
-        GradientPaint gradient = new GradientPaint(
-            x, y,
-            baseColor,
-            x + BLOCK_SIZE, y + BLOCK_SIZE,
-            new Color(
-                Math.max(0, baseColor.getRed() - 50),
-                Math.max(0, baseColor.getGreen() - 50),
-                Math.max(0, baseColor.getBlue() - 50)
-            )
-        );
-        g2d.setPaint(gradient);
-        g2d.fillRoundRect(x + 2, y + 2, BLOCK_SIZE - 4, BLOCK_SIZE - 4, 6, 6);
-
-        g2d.setColor(new Color(0, 0, 0, 40));
-        g2d.setStroke(new BasicStroke(2f));
-        g2d.drawRoundRect(x + 3, y + 3, BLOCK_SIZE - 6, BLOCK_SIZE - 6, 5, 5);
-
-        GradientPaint highlight = new GradientPaint(
-            x, y + 2,
-            new Color(255, 255, 255, 120),
-            x, y + BLOCK_SIZE / 2,
-            new Color(255, 255, 255, 0)
-        );
-        g2d.setPaint(highlight);
-        g2d.fillRoundRect(x + 4, y + 4, BLOCK_SIZE - 8, BLOCK_SIZE / 2 - 4, 6, 6);
+        // Gradient body, inner edge and highlight do not animate and are pre-rendered
+        g2d.drawImage(BlockSprites.getBody(colorIndex, BLOCK_SIZE), x, y, null);
     }
 
     private Color blend(Color c1, Color c2, float ratio) {
@@ -553,12 +524,11 @@ public class GameBoard extends JPanel {
     }
 
     private void drawGhostPiece(Graphics2D g2d) {
-        int dropDistance = 0;
-        while (isValidPosition(currentX, currentY + dropDistance + 1, currentPiece)) {
-            dropDistance++;
-        }
+        int dropDistance = engine.getDropDistance();
+        int currentX = engine.getCurrentX();
+        int currentY = engine.getCurrentY();
 
-        int[][] shape = currentPiece.getShape();
+        int[][] shape = engine.getCurrentPiece().getShape();
         float ghostOpacity = 0.3f + (float)Math.sin(System.currentTimeMillis() / 400.0) * 0.1f;
         Color ghostColor = new Color(255, 255, 255, (int)(ghostOpacity * 255));
 
@@ -659,10 +629,10 @@ public class GameBoard extends JPanel {
 
     /**
      * Returns the current board state
-     * @return The game board array
+     * @return The game board rows ordered from the top, must not be modified
      */
     public int[][] getBoardState() {
-        return board;
+        return engine.getBoard().toRows();
     }
 
     /**
@@ -678,32 +648,20 @@ public class GameBoard extends JPanel {
      * Resets the game board for a new game
      */
     public void resetBoard() {
-        // Clear the board
-        for (int i = 0; i < BOARD_HEIGHT; i++) {
-            for (int j = 0; j < BOARD_WIDTH; j++) {
-                board[i][j] = 0;
-            }
-        }
-
-        // Reset pieces
-        holdPiece = null;
-        canHold = true;
         message = null;
 
-        // Create new pieces
-        nextPiece = Tetromino.getRandomPiece(random);
-        createNewPiece();
+        // Clear the board and create new pieces
+        engine.reset();
+        publishFrame();
 
-        // Reinitialize cosmic effects
-        if (effectsTimer != null) {
-            effectsTimer.stop();
+        // Reuse the cosmic effects, cleanup may have handed them back to the pool
+        FrameScheduler.unregister(this);
+        if (cosmicEffects == null) {
+            cosmicEffects = CosmicEffects.obtain(BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
+        } else {
+            cosmicEffects.reset();
         }
-        cosmicEffects = new CosmicEffects(BOARD_WIDTH * BLOCK_SIZE, BOARD_HEIGHT * BLOCK_SIZE);
-        effectsTimer = new Timer(16, _ -> {
-            cosmicEffects.update();
-            repaint();
-        });
-        effectsTimer.start();
+        FrameScheduler.register(this, this::animateEffects);
 
         repaint();
     }
@@ -718,24 +676,77 @@ public class GameBoard extends JPanel {
     }
 
     public Tetromino getNextPiece() {
-        return nextPiece;
+        return engine.getNextPiece();
     }
 
     public Tetromino getHoldPiece() {
-        return holdPiece;
+        return engine.getHoldPiece();
     }
 
     public int getLastLinesCleared() {
-        return lastLinesCleared;
+        return engine.getLastLinesCleared();
+    }
+
+    /**
+     * Returns the rules engine behind this board
+     * @return The engine, guarded by the game lock
+     */
+    public TetrisEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the side panel values of this board
+     * @return The model, flushed by the window on the event thread
+     */
+    public HudModel getHudModel() {
+        return hudModel;
+    }
+
+    /**
+     * Sets the player number written with this board's game and telemetry events
+     * @param player 1 or 2 in two player mode
+     */
+    public void setPlayerNumber(int player) {
+        playerNumber = player;
+    }
+
+    /**
+     * Sends this board's changes to spectators from now on
+     * @param feed The board's feed from SpectatorBroadcaster.startSession
+     */
+    public void setSpectatorFeed(SpectatorBroadcaster.Feed feed) {
+        spectatorFeed = feed;
+    }
+
+    /**
+     * Returns the counters of the current game, updated under the game lock
+     * @return The session stats
+     */
+    public SessionStats getSessionStats() {
+        return sessionStats;
+    }
+
+    /**
+     * Returns the keypress-to-frame latency histogram for this board's player
+     * @return The input latency histogram
+     */
+    public LatencyHistogram getInputLatencyHistogram() {
+        return inputLatency;
+    }
+
+    /**
+     * Returns the histogram of time input handlers spent waiting for the game lock
+     * @return The lock wait histogram
+     */
+    public LatencyHistogram getLockWaitHistogram() {
+        return lockWaitLatency;
     }
 
     public void cleanup() {
-        if (effectsTimer != null) {
-            effectsTimer.stop();
-            effectsTimer = null;
-        }
+        FrameScheduler.unregister(this);
         if (cosmicEffects != null) {
-            cosmicEffects.cleanup();
+            cosmicEffects.release();
             cosmicEffects = null;
         }
     }
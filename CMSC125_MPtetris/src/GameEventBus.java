@@ -0,0 +1,155 @@
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Typed game events, published by the threads that change the boards and
+ * handled on the Swing event thread.
+ * Publishing only queues the event, so a game thread holding the game lock
+ * pays for a small allocation and a lock-free queue insert, while sounds,
+ * effects, score labels, previews and telemetry run later without the lock.
+ * Events queued in a burst are handled in order by one event thread task.
+ * Each event carries the values it describes, read when it was published,
+ * so handlers never look at a board that has already moved on.
+ */
+public class GameEventBus {
+    /**
+     * Base of all events
+     */
+    public abstract static class Event {
+        /** 0 in single player, 1 or 2 in two player mode */
+        public final int player;
+
+        Event(int player) {
+            this.player = player;
+        }
+    }
+
+    public static final class PieceSpawned extends Event {
+        public final Tetromino piece;
+        public final Tetromino next;
+
+        public PieceSpawned(int player, Tetromino piece, Tetromino next) {
+            super(player);
+            this.piece = piece;
+            this.next = next;
+        }
+    }
+
+    public static final class PieceHeld extends Event {
+        public final Tetromino held;
+
+        public PieceHeld(int player, Tetromino held) {
+            super(player);
+            this.held = held;
+        }
+    }
+
+    public static final class PieceLocked extends Event {
+        public final Tetromino piece;
+        public final int x;
+        public final int y;
+        public final int linesCleared;
+        public final int stackHeight;
+
+        public PieceLocked(int player, Tetromino piece, int x, int y, int linesCleared, int stackHeight) {
+            super(player);
+            this.piece = piece;
+            this.x = x;
+            this.y = y;
+            this.linesCleared = linesCleared;
+            this.stackHeight = stackHeight;
+        }
+    }
+
+    /**
+     * Lines were cleared, with the player's totals afterwards
+     */
+    public static final class LinesCleared extends Event {
+        public final int lines;
+        public final int score;
+        public final int totalLines;
+        public final int level;
+
+        public LinesCleared(int player, int lines, int score, int totalLines, int level) {
+            super(player);
+            this.lines = lines;
+            this.score = score;
+            this.totalLines = totalLines;
+            this.level = level;
+        }
+    }
+
+    public static final class LevelUp extends Event {
+        public final int level;
+
+        public LevelUp(int player, int level) {
+            super(player);
+            this.level = level;
+        }
+    }
+
+    /**
+     * A player's board filled up, with the final totals
+     */
+    public static final class GameOver extends Event {
+        public final int score;
+        public final int lines;
+        public final int level;
+
+        public GameOver(int player, int score, int lines, int level) {
+            super(player);
+            this.score = score;
+            this.lines = lines;
+            this.level = level;
+        }
+    }
+
+    private final Map<Class<? extends Event>, List<Consumer<Event>>> handlers = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean(false);
+
+    /**
+     * Registers a handler, called on the event thread for every event of the type
+     * @param type Event class
+     * @param handler The handler
+     */
+    public <E extends Event> void subscribe(Class<E> type, Consumer<? super E> handler) {
+        handlers.computeIfAbsent(type, key -> new CopyOnWriteArrayList<>())
+                .add(event -> handler.accept(type.cast(event)));
+    }
+
+    /**
+     * Queues an event. Safe to call from any thread, never waits for handlers.
+     * @param event The event
+     */
+    public void publish(Event event) {
+        queue.add(event);
+        // One event thread task drains everything queued until it runs
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchScheduled.set(false);
+        Event event;
+        while ((event = queue.poll()) != null) {
+            List<Consumer<Event>> typeHandlers = handlers.get(event.getClass());
+            if (typeHandlers == null) continue;
+            for (Consumer<Event> handler : typeHandlers) {
+                try {
+                    handler.accept(event);
+                } catch (RuntimeException e) {
+                    // One broken handler should not starve the others
+                    System.err.println("Error handling " + event.getClass().getSimpleName() + ": " + e);
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,15 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
 
 /**
- * Screen for selecting game mode (1 player or 2 players)
+ * Screen for selecting game mode (1 player, 2 players, a network match or spectating)
  */
 public class GameModeScreen extends JFrame {
     private static final int WINDOW_WIDTH = 800;
     private static final int WINDOW_HEIGHT = 600;
     private CosmicEffects cosmicEffects;
-    private Timer effectsTimer;
     private float selectionGlow = 0;
     private boolean glowIncreasing = true;
     private boolean isTransitioning = false;
@@ -27,7 +27,7 @@ public class GameModeScreen extends JFrame {
         soundManager.playMenuMusic();
 
         // Initialize cosmic effects
-        cosmicEffects = new CosmicEffects(WINDOW_WIDTH, WINDOW_HEIGHT);
+        cosmicEffects = CosmicEffects.obtain(WINDOW_WIDTH, WINDOW_HEIGHT);
 
         // Create main panel with custom painting
         JPanel mainPanel = new JPanel() {
@@ -54,26 +54,27 @@ public class GameModeScreen extends JFrame {
         JPanel modePanel = new JPanel();
         modePanel.setLayout(new BoxLayout(modePanel, BoxLayout.Y_AXIS));
         modePanel.setOpaque(false);
-        modePanel.setBorder(BorderFactory.createEmptyBorder(160, 0, 0, 0));
+        modePanel.setBorder(BorderFactory.createEmptyBorder(120, 0, 0, 0));
 
         // Create mode buttons with descriptions
         addModeButton(modePanel, "Single Player", "Classic Tetris experience with cosmic visuals",
             e -> startSinglePlayer());
         addModeButton(modePanel, "Two Players", "Compete with a friend in split-screen mode",
             e -> startTwoPlayer());
+        addModeButton(modePanel, "Network Match", "Host or join a match against another computer",
+            e -> startNetworkMatch());
         addModeButton(modePanel, "Back to Menu", "Return to the main menu",
             e -> returnToMenu());
 
         mainPanel.add(modePanel);
         add(mainPanel);
 
-        // Start animation timer
-        effectsTimer = new Timer(16, e -> {
+        // Animate with the shared frame clock
+        FrameScheduler.register(getRootPane(), () -> {
             cosmicEffects.update();
             updateSelectionGlow();
             mainPanel.repaint();
         });
-        effectsTimer.start();
 
         addKeyBindings(mainPanel);
     }
@@ -200,6 +201,7 @@ public class GameModeScreen extends JFrame {
 
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_1, 0), "singlePlayer");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_2, 0), "twoPlayer");
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_3, 0), "networkMatch");
         inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "returnToMenu");
 
         actionMap.put("singlePlayer", new AbstractAction() {
@@ -216,6 +218,13 @@ public class GameModeScreen extends JFrame {
             }
         });
 
+        actionMap.put("networkMatch", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                startNetworkMatch();
+            }
+        });
+
         actionMap.put("returnToMenu", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -251,6 +260,47 @@ public class GameModeScreen extends JFrame {
         });
     }
 
+    private void startNetworkMatch() {
+        if (isTransitioning) return;
+
+        String[] options = {"Host", "Join", "Spectate", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this,
+            "Host a match on this computer, join one hosted elsewhere, or watch a game being played?",
+            "Network Match", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+            null, options, options[0]);
+        if (choice < 0 || choice > 2) return;
+
+        String host = "localhost";
+        MatchServer server = null;
+        try {
+            if (choice == 0) {
+                server = new MatchServer(NetProtocol.DEFAULT_PORT);
+                server.start();
+            } else {
+                host = JOptionPane.showInputDialog(this, "Server address:", "localhost");
+                if (host == null || host.trim().isEmpty()) return;
+                host = host.trim();
+            }
+            int port = choice == 2 ? SpectatorBroadcaster.DEFAULT_PORT : NetProtocol.DEFAULT_PORT;
+            NetworkTetrisGame game = new NetworkTetrisGame(host, port, server);
+            isTransitioning = true;
+            cleanup();
+            dispose();
+            game.setVisible(true);
+            if (choice == 2) {
+                game.spectate();
+            } else {
+                game.startGame();
+            }
+        } catch (IOException e) {
+            if (server != null) {
+                server.stop();
+            }
+            JOptionPane.showMessageDialog(this, "Could not start network match: " + e.getMessage(),
+                "Network Match", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void returnToMenu() {
         if (isTransitioning) return;
         isTransitioning = true;
@@ -262,19 +312,15 @@ public class GameModeScreen extends JFrame {
     }
 
     private void cleanup() {
-        if (effectsTimer != null) {
-            effectsTimer.stop();
-            effectsTimer = null;
-        }
+        FrameScheduler.unregister(getRootPane());
         if (cosmicEffects != null) {
-            cosmicEffects.cleanup();
+            cosmicEffects.release();
             cosmicEffects = null;
         }
         if (soundManager != null) {
             soundManager.stopMenuMusic();
             soundManager.cleanup();
         }
-        System.gc();
     }
 
     @Override
@@ -1,24 +1,61 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Keeps the leaderboard with every game ever saved.
+ * Games up to the last compaction are read straight from a memory-mapped
+ * MappedScoreTable, and games saved since then are held in an order-statistic
+ * ScoreIndex. Queries merge the two, so top-N, rank-of-score and per-player
+ * best stay fast and startup does not read the history. Saves update the index
+ * and hand the new entry to a background writer, which appends it to the
+ * ScoreLog and periodically compacts the log into a new table. Saves that
+ * arrive while a write is in progress are written together.
+ */
 public class HighScoreManager {
-    private static final String HIGHSCORE_FILE = "highscores.txt";
+    // Table from older versions, imported once into the score log
+    private static final String LEGACY_HIGHSCORE_FILE = "highscores.txt";
     private static final int MAX_HIGHSCORES = 5;
-    private List<ScoreEntry> highScores;
+    // Compact once the log holds this many entries, or half the table size if larger
+    private static final int COMPACT_MIN_ENTRIES = 256;
+
+    // Games up to the last compaction
+    private MappedScoreTable table = MappedScoreTable.EMPTY;
+    // Games saved since the last compaction, in save order and indexed
+    private List<ScoreEntry> recentEntries = new ArrayList<>();
+    private ScoreIndex recent = new ScoreIndex();
+    private final Map<String, ScoreEntry> playerBests = new HashMap<>();
+    // Top of the table, replaced on every save so the common reads need no lock
+    private volatile List<ScoreEntry> highScores;
+
+    private final ScoreLog log;
+    private final BackgroundWriter writer;
+    private final List<ScoreEntry> pendingWrites = new ArrayList<>();
+    private boolean writeScheduled = false;
 
     public static class ScoreEntry implements Comparable<ScoreEntry> {
         private String username;
         private int score;
         private int lines;
         private int level;
+        private long playedAt;
 
         public ScoreEntry(String username, int score, int lines, int level) {
+            this(username, score, lines, level, System.currentTimeMillis());
+        }
+
+        public ScoreEntry(String username, int score, int lines, int level, long playedAt) {
             this.username = username;
             this.score = score;
             this.lines = lines;
             this.level = level;
+            this.playedAt = playedAt;
         }
 
         @Override
@@ -30,68 +67,247 @@ public class HighScoreManager {
         public int getScore() { return score; }
         public int getLines() { return lines; }
         public int getLevel() { return level; }
+        public long getPlayedAt() { return playedAt; }
     }
 
     public HighScoreManager() {
-        highScores = new ArrayList<>();
-        loadHighScores();
+        log = new ScoreLog(Paths.get(""));
+        boolean firstRun = false;
+
+        try {
+            firstRun = !log.exists();
+            table = log.openTable();
+            for (ScoreEntry best : table.getPlayerBests()) {
+                playerBests.put(best.getUsername(), best);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading score table: " + e.getMessage());
+        }
+
+        try {
+            for (ScoreEntry entry : log.replayLog()) {
+                addRecent(entry);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading score log: " + e.getMessage());
+        }
+
+        if (firstRun) {
+            importLegacyHighScores();
+        }
+        highScores = Collections.unmodifiableList(top(MAX_HIGHSCORES));
+
+        writer = new BackgroundWriter("HighScore", "high scores");
     }
 
-    private void loadHighScores() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(HIGHSCORE_FILE))) {
+    private void importLegacyHighScores() {
+        List<ScoreEntry> imported = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(LEGACY_HIGHSCORE_FILE), StandardCharsets.UTF_8)) {
             String line;
             while ((line = reader.readLine()) != null) {
                 try {
                     String[] parts = line.split(",");
                     if (parts.length == 4) {
-                        String username = parts[0].trim();
+                        String username = MappedScoreTable.fitName(parts[0].trim());
                         int score = Integer.parseInt(parts[1].trim());
                         int lines = Integer.parseInt(parts[2].trim());
                         int level = Integer.parseInt(parts[3].trim());
-                        highScores.add(new ScoreEntry(username, score, lines, level));
+                        imported.add(new ScoreEntry(username, score, lines, level, 0));
                     }
                 } catch (NumberFormatException e) {
                     // Skip invalid entries
                 }
             }
         } catch (IOException e) {
-            // File doesn't exist yet, that's okay
+            // No table from an older version, that's okay
+            return;
+        }
+
+        Collections.sort(imported);
+        for (ScoreEntry entry : imported) {
+            addRecent(entry);
+        }
+        try {
+            log.append(imported);
+        } catch (IOException e) {
+            System.err.println("Error importing high scores: " + e.getMessage());
+        }
+    }
+
+    private void addRecent(ScoreEntry entry) {
+        recentEntries.add(entry);
+        recent.insert(entry);
+        updatePlayerBest(entry);
+    }
+
+    private void updatePlayerBest(ScoreEntry entry) {
+        ScoreEntry best = playerBests.get(entry.getUsername());
+        if (best == null || entry.getScore() > best.getScore()) {
+            playerBests.put(entry.getUsername(), entry);
+        }
+    }
+
+    /**
+     * Records a finished game. Returns without waiting for the disk.
+     * @param username Player name
+     * @param score Final score
+     * @param lines Lines cleared
+     * @param level Level reached
+     */
+    public synchronized void saveHighScore(String username, int score, int lines, int level) {
+        ScoreEntry entry = new ScoreEntry(MappedScoreTable.fitName(username), score, lines, level);
+        addRecent(entry);
+        highScores = Collections.unmodifiableList(top(MAX_HIGHSCORES));
+
+        pendingWrites.add(entry);
+        if (!writeScheduled) {
+            writeScheduled = true;
+            writer.execute(this::writePending);
         }
-        Collections.sort(highScores);
     }
 
-    public void saveHighScore(String username, int score, int lines, int level) {
-        if (isHighScore(score)) {
-            highScores.add(new ScoreEntry(username, score, lines, level));
-            Collections.sort(highScores);
-            
-            // Keep only top MAX_HIGHSCORES
-            while (highScores.size() > MAX_HIGHSCORES) {
-                highScores.remove(highScores.size() - 1);
+    private void writePending() {
+        while (true) {
+            List<ScoreEntry> batch;
+            MappedScoreTable compactedTable = null;
+            List<ScoreEntry> compactedRecent = null;
+            List<ScoreEntry> compactedBests = null;
+            synchronized (this) {
+                if (pendingWrites.isEmpty()) {
+                    writeScheduled = false;
+                    return;
+                }
+                batch = new ArrayList<>(pendingWrites);
+                pendingWrites.clear();
+
+                // Taken together with the batch, so the new table holds exactly what is in the log
+                int logged = log.getEntriesSinceCompaction() + batch.size();
+                if (logged >= Math.max(COMPACT_MIN_ENTRIES, table.size() / 2)) {
+                    compactedTable = table;
+                    compactedRecent = recent.top(recent.size());
+                    compactedBests = new ArrayList<>(playerBests.values());
+                }
             }
 
-            try (PrintWriter writer = new PrintWriter(new FileWriter(HIGHSCORE_FILE))) {
-                for (ScoreEntry entry : highScores) {
-                    writer.println(entry.getUsername() + "," + 
-                                 entry.getScore() + "," + 
-                                 entry.getLines() + "," + 
-                                 entry.getLevel());
+            try {
+                log.append(batch);
+                if (compactedTable != null) {
+                    MappedScoreTable compacted = log.compact(
+                        mergeSorted(compactedTable, compactedRecent),
+                        compactedTable.size() + compactedRecent.size(),
+                        compactedBests);
+                    replaceTable(compacted, compactedRecent.size());
                 }
             } catch (IOException e) {
-                e.printStackTrace();
+                System.err.println("Error saving high scores: " + e.getMessage());
             }
         }
     }
 
+    private synchronized void replaceTable(MappedScoreTable compacted, int compactedCount) {
+        // Keep only the games saved while the table was being written
+        List<ScoreEntry> stillRecent = recentEntries.subList(compactedCount, recentEntries.size());
+        List<ScoreEntry> entries = new ArrayList<>(stillRecent);
+        table = compacted;
+        recentEntries = new ArrayList<>();
+        recent = new ScoreIndex();
+        for (ScoreEntry entry : entries) {
+            recentEntries.add(entry);
+            recent.insert(entry);
+        }
+    }
+
+    /**
+     * Merges the table with recent entries, in leaderboard order
+     * @param table Compacted games, sorted
+     * @param recentSorted Recent games, sorted
+     * @return Iterator over both, highest first
+     */
+    private static Iterator<ScoreEntry> mergeSorted(MappedScoreTable table, List<ScoreEntry> recentSorted) {
+        return new Iterator<ScoreEntry>() {
+            private int tablePosition = 0;
+            private int recentPosition = 0;
+
+            @Override
+            public boolean hasNext() {
+                return tablePosition < table.size() || recentPosition < recentSorted.size();
+            }
+
+            @Override
+            public ScoreEntry next() {
+                // Compacted games are older, so they come first among equal scores
+                if (recentPosition >= recentSorted.size()
+                        || (tablePosition < table.size()
+                            && table.getScore(tablePosition) >= recentSorted.get(recentPosition).getScore())) {
+                    return table.get(tablePosition++);
+                }
+                return recentSorted.get(recentPosition++);
+            }
+        };
+    }
+
+    private List<ScoreEntry> top(int count) {
+        List<ScoreEntry> result = new ArrayList<>(Math.min(count, table.size() + recent.size()));
+        Iterator<ScoreEntry> merged = mergeSorted(table, recent.top(count));
+        while (result.size() < count && merged.hasNext()) {
+            result.add(merged.next());
+        }
+        return result;
+    }
+
+    /**
+     * Waits for any pending write to reach the disk
+     */
+    public void flush() {
+        writer.flush();
+    }
+
     public boolean isHighScore(int score) {
-        return highScores.size() < MAX_HIGHSCORES || score > highScores.get(highScores.size() - 1).getScore();
+        List<ScoreEntry> snapshot = highScores;
+        return snapshot.size() < MAX_HIGHSCORES || score > snapshot.get(snapshot.size() - 1).getScore();
     }
 
     public List<ScoreEntry> getHighScores() {
-        return new ArrayList<>(highScores);
+        return highScores;
     }
 
     public int getHighestScore() {
-        return highScores.isEmpty() ? 0 : highScores.get(0).getScore();
+        List<ScoreEntry> snapshot = highScores;
+        return snapshot.isEmpty() ? 0 : snapshot.get(0).getScore();
+    }
+
+    /**
+     * Gets the best entries of all time
+     * @param count Maximum number of entries
+     * @return Up to count entries, highest first
+     */
+    public synchronized List<ScoreEntry> getTopScores(int count) {
+        return top(count);
+    }
+
+    /**
+     * Gets the place a score would take on the leaderboard
+     * @param score The score to rank
+     * @return 1 for the best score, ties share a place
+     */
+    public synchronized int getRank(int score) {
+        return table.countAbove(score) + recent.countAbove(score) + 1;
+    }
+
+    /**
+     * Gets a player's best game
+     * @param username Player name
+     * @return The entry, or null if the player has no saved games
+     */
+    public synchronized ScoreEntry getPlayerBest(String username) {
+        return playerBests.get(username);
+    }
+
+    /**
+     * Gets the number of saved games
+     * @return Total games in the history
+     */
+    public synchronized int getGamesPlayed() {
+        return table.size() + recent.size();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What the side panel shows for one board: score, lines, level and the next
+ * and held pieces.
+ * The model takes no lock. It has a single writer, the board's engine
+ * listener, which stores plain fields and then bumps an atomic version. The
+ * version's release publishes the fields, so a change costs a few stores
+ * rather than a Swing call, and readers that read the version first see
+ * every write up to it. Once per frame the window calls flush on the event
+ * thread, which hands the view only the values that changed since the last
+ * flush. A burst of changes therefore costs one batch of label and preview
+ * updates and a single layout pass. A flush that races a write may show part
+ * of it, and the next frame shows the rest.
+ */
+public class HudModel {
+    /**
+     * Receives changed values on the event thread
+     */
+    public interface View {
+        void showScore(int score);
+        void showLines(int lines);
+        void showLevel(int level);
+        void showNextPiece(Tetromino piece);
+        void showHoldPiece(Tetromino piece);
+    }
+
+    // Written only by the single writer
+    private int score = 0;
+    private int lines = 0;
+    private int level = 1;
+    private Tetromino nextPiece;
+    private Tetromino holdPiece;
+    // Bumped after every write, publishes the fields above
+    private final AtomicInteger version = new AtomicInteger();
+
+    // Only used on the event thread
+    private int flushedVersion = -1;
+    private int shownScore = -1;
+    private int shownLines = -1;
+    private int shownLevel = -1;
+    private Tetromino shownNextPiece;
+    private Tetromino shownHoldPiece;
+
+    /**
+     * Sets the totals after lines were cleared
+     */
+    public void setTotals(int score, int lines, int level) {
+        this.score = score;
+        this.lines = lines;
+        this.level = level;
+        version.incrementAndGet();
+    }
+
+    public void setNextPiece(Tetromino piece) {
+        nextPiece = piece;
+        version.incrementAndGet();
+    }
+
+    public void setHoldPiece(Tetromino piece) {
+        holdPiece = piece;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Goes back to the values of a new game
+     */
+    public void reset() {
+        score = 0;
+        lines = 0;
+        level = 1;
+        holdPiece = null;
+        version.incrementAndGet();
+    }
+
+    public int getScore() {
+        version.get();
+        return score;
+    }
+
+    public int getLines() {
+        version.get();
+        return lines;
+    }
+
+    /**
+     * Gets the level, read by the game thread to pace gravity
+     * @return The level as of the last write
+     */
+    public int getLevel() {
+        // Reading the version first makes the latest published level visible
+        version.get();
+        return level;
+    }
+
+    /**
+     * Passes the values that changed since the last call to the view.
+     * Call on the event thread once per frame.
+     * @param view The side panel
+     */
+    public void flush(View view) {
+        int current = version.get();
+        if (current == flushedVersion) return;
+        flushedVersion = current;
+
+        if (score != shownScore) {
+            shownScore = score;
+            view.showScore(score);
+        }
+        if (lines != shownLines) {
+            shownLines = lines;
+            view.showLines(lines);
+        }
+        if (level != shownLevel) {
+            shownLevel = level;
+            view.showLevel(level);
+        }
+        if (nextPiece != shownNextPiece) {
+            shownNextPiece = nextPiece;
+            view.showNextPiece(nextPiece);
+        }
+        if (holdPiece != shownHoldPiece) {
+            shownHoldPiece = holdPiece;
+            view.showHoldPiece(holdPiece);
+        }
+    }
+}
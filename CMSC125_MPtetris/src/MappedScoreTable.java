@@ -0,0 +1,229 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-only leaderboard snapshot stored as fixed-size records and memory-mapped.
+ * Scores are stored sorted, highest first, in 64-byte records followed by one
+ * record per player holding that player's best game. Opening a table only maps
+ * the file, so startup cost does not grow with the history. Top-N and rank
+ * queries read just the records they touch, and the operating system pages
+ * them in on demand. Reads use absolute positions, so a table can be shared
+ * by any number of threads.
+ */
+public final class MappedScoreTable {
+    /** Longest username in UTF-8 bytes that fits in a record */
+    public static final int MAX_NAME_BYTES = 43;
+
+    private static final int MAGIC = 0x5453534D; // "TSSM"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 64;
+
+    // Record layout
+    private static final int PLAYED_AT_OFFSET = 0;
+    private static final int SCORE_OFFSET = 8;
+    private static final int LINES_OFFSET = 12;
+    private static final int LEVEL_OFFSET = 16;
+    private static final int NAME_LENGTH_OFFSET = 20;
+    private static final int NAME_OFFSET = 21;
+
+    /** Table with no entries, used before the first compaction */
+    public static final MappedScoreTable EMPTY = new MappedScoreTable(null, 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final long generation;
+    private final int count;
+    private final int playerCount;
+
+    private MappedScoreTable(ByteBuffer buffer, long generation, int count, int playerCount) {
+        this.buffer = buffer;
+        this.generation = generation;
+        this.count = count;
+        this.playerCount = playerCount;
+    }
+
+    /**
+     * Maps a table file
+     * @param path The table file
+     * @return The mapped table
+     * @throws IOException If the file cannot be mapped or is not a valid table
+     */
+    public static MappedScoreTable open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Invalid score table size " + fileSize);
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapped.order(ByteOrder.BIG_ENDIAN);
+            if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION
+                    || mapped.getInt(8) != RECORD_BYTES) {
+                throw new IOException("Unrecognized score table format");
+            }
+            long generation = mapped.getLong(12);
+            int count = mapped.getInt(20);
+            int playerCount = mapped.getInt(24);
+            if (count < 0 || playerCount < 0
+                    || HEADER_BYTES + ((long) count + playerCount) * RECORD_BYTES != fileSize) {
+                throw new IOException("Score table is truncated");
+            }
+            return new MappedScoreTable(mapped, generation, count, playerCount);
+        }
+    }
+
+    /**
+     * Writes a table file and forces it to disk
+     * @param path File to write, replaced if it exists
+     * @param generation Log generation the table belongs to
+     * @param sorted Every entry, sorted by score, highest first
+     * @param count Number of entries returned by sorted
+     * @param playerBests Best entry of every player
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path path, long generation, Iterator<HighScoreManager.ScoreEntry> sorted,
+                             int count, Collection<HighScoreManager.ScoreEntry> playerBests) throws IOException {
+        try (FileOutputStream file = new FileOutputStream(path.toFile())) {
+            BufferedOutputStream out = new BufferedOutputStream(file, 1 << 16);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+
+            record.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(RECORD_BYTES)
+                  .putLong(generation).putInt(count).putInt(playerBests.size());
+            out.write(record.array());
+
+            int written = 0;
+            while (sorted.hasNext()) {
+                writeRecord(out, record, sorted.next());
+                written++;
+            }
+            if (written != count) {
+                throw new IOException("Expected " + count + " entries but got " + written);
+            }
+            for (HighScoreManager.ScoreEntry entry : playerBests) {
+                writeRecord(out, record, entry);
+            }
+
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    private static void writeRecord(OutputStream out, ByteBuffer record,
+                                    HighScoreManager.ScoreEntry entry) throws IOException {
+        byte[] name = entry.getUsername().getBytes(StandardCharsets.UTF_8);
+        int nameLength = Math.min(name.length, MAX_NAME_BYTES);
+
+        record.clear();
+        record.putLong(entry.getPlayedAt())
+              .putInt(entry.getScore())
+              .putInt(entry.getLines())
+              .putInt(entry.getLevel())
+              .put((byte) nameLength)
+              .put(name, 0, nameLength);
+        out.write(record.array());
+    }
+
+    /**
+     * Shortens a username so it fits in a record without splitting a character
+     * @param username The username
+     * @return The username, shortened if needed
+     */
+    public static String fitName(String username) {
+        while (username.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+            int end = username.length() - 1;
+            if (Character.isLowSurrogate(username.charAt(end))) {
+                end--;
+            }
+            username = username.substring(0, end);
+        }
+        return username;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the number of score entries
+     * @return Entries in the table, not counting player bests
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the score at a position without reading the rest of the record
+     * @param position Zero based position, 0 is the highest score
+     * @return The score
+     */
+    public int getScore(int position) {
+        return buffer.getInt(recordOffset(position) + SCORE_OFFSET);
+    }
+
+    /**
+     * Reads the entry at a position
+     * @param position Zero based position, 0 is the highest score
+     * @return The entry
+     */
+    public HighScoreManager.ScoreEntry get(int position) {
+        return readRecord(recordOffset(position));
+    }
+
+    /**
+     * Counts the entries with a strictly higher score by binary search
+     * @param score The score to rank
+     * @return Number of entries ranked above the score
+     */
+    public int countAbove(int score) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getScore(middle) > score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads the best entry of every player
+     * @return One entry per player
+     */
+    public List<HighScoreManager.ScoreEntry> getPlayerBests() {
+        List<HighScoreManager.ScoreEntry> bests = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            bests.add(readRecord(recordOffset(count + i)));
+        }
+        return bests;
+    }
+
+    private static int recordOffset(int position) {
+        return HEADER_BYTES + position * RECORD_BYTES;
+    }
+
+    private HighScoreManager.ScoreEntry readRecord(int offset) {
+        int nameLength = buffer.get(offset + NAME_LENGTH_OFFSET);
+        byte[] name = new byte[nameLength];
+        buffer.get(offset + NAME_OFFSET, name);
+        return new HighScoreManager.ScoreEntry(
+            new String(name, StandardCharsets.UTF_8),
+            buffer.getInt(offset + SCORE_OFFSET),
+            buffer.getInt(offset + LINES_OFFSET),
+            buffer.getInt(offset + LEVEL_OFFSET),
+            buffer.getLong(offset + PLAYED_AT_OFFSET)
+        );
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client side of a networked match.
+ * Inputs are sent to the MatchServer as 4-byte messages, and a reader thread
+ * applies the BoardSync frames the server sends to two mirror engines, one per
+ * player, under the caller's game lock. The mirrors are only ever written by
+ * the server's frames, so what is shown is exactly what the server decided.
+ * When a frame is lost the client asks the server for a keyframe. The same
+ * client watches a SpectatorBroadcaster by never sending JOIN.
+ */
+public class MatchClient {
+    /**
+     * Receives match events on the reader thread
+     */
+    public interface Listener {
+        void matchStarted(int player, int matchId);
+        void stateReceived(int player);
+        void matchOver(int winner);
+        void disconnected();
+
+        /**
+         * A game started on a SpectatorBroadcaster this client watches
+         * @param boards Number of boards in the game
+         * @param gameId Game number
+         */
+        default void spectateStarted(int boards, int gameId) {
+        }
+    }
+
+    private final SocketChannel channel;
+    private final TetrisEngine[] mirrors;
+    private final ReentrantLock lock;
+    private final Listener listener;
+    private final ByteBuffer output = ByteBuffer.allocateDirect(NetProtocol.CLIENT_MESSAGE_BYTES);
+    private final BoardSync.Decoder[] decoders = {
+        new BoardSync.Decoder(NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT),
+        new BoardSync.Decoder(NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT)
+    };
+    // Boards a keyframe was asked for and has not arrived yet, only used by the reader thread
+    private final boolean[] resyncPending = new boolean[2];
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to a match server and starts reading
+     * @param host Server host name
+     * @param port Server port
+     * @param mirrors Engines to load player 0 and player 1 states into
+     * @param lock Lock held while a mirror is updated
+     * @param listener Receives match events
+     * @throws IOException If the server cannot be reached
+     */
+    public MatchClient(String host, int port, TetrisEngine[] mirrors, ReentrantLock lock, Listener listener)
+            throws IOException {
+        this.mirrors = mirrors;
+        this.lock = lock;
+        this.listener = listener;
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+
+        Thread reader = new Thread(this::readLoop, "Tetris-MatchClient");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Asks the server for a match, also used to play again after a match ends
+     */
+    public void join() {
+        send(NetProtocol.JOIN, NetProtocol.VERSION);
+    }
+
+    /**
+     * Sends a player input
+     * @param action One of the NetProtocol input actions
+     */
+    public void sendInput(int action) {
+        send(NetProtocol.INPUT, action);
+    }
+
+    private synchronized void send(int type, int argument) {
+        if (closed) return;
+        output.clear();
+        NetProtocol.putClientMessage(output, type, argument);
+        output.flip();
+        try {
+            while (output.hasRemaining()) {
+                channel.write(output);
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer input = ByteBuffer.allocateDirect(NetProtocol.KEYFRAME_BYTES * 8);
+        try {
+            while (channel.read(input) >= 0) {
+                input.flip();
+                while (input.remaining() > 0) {
+                    int size = NetProtocol.serverMessageSize(input);
+                    if (size < 0) {
+                        throw new IOException("Unknown message type " + input.get(input.position()));
+                    }
+                    if (size == 0 || input.remaining() < size) break;
+                    int end = input.position() + size;
+                    handleMessage(input);
+                    input.position(end);
+                }
+                input.compact();
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Lost connection to match server: " + e.getMessage());
+            }
+        }
+        close();
+    }
+
+    private void handleMessage(ByteBuffer input) {
+        int type = input.get(input.position());
+        int player = input.get(input.position() + 1);
+        if (type == NetProtocol.KEYFRAME || type == NetProtocol.DELTA) {
+            if (player != 0 && player != 1) return;
+
+            boolean applied;
+            lock.lock();
+            try {
+                if (type == NetProtocol.KEYFRAME) {
+                    decoders[player].applyKeyframe(input, mirrors[player]);
+                    applied = true;
+                } else {
+                    applied = decoders[player].applyDelta(input, mirrors[player]);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (applied) {
+                resyncPending[player] = false;
+                listener.stateReceived(player);
+            } else if (!resyncPending[player]) {
+                resyncPending[player] = true;
+                send(NetProtocol.RESYNC, player);
+            }
+        } else {
+            input.getShort();
+            input.getShort();
+            int matchId = input.getInt();
+            if (type == NetProtocol.MATCH_START || type == NetProtocol.SPECTATE_START) {
+                // A new match starts with keyframes
+                resyncPending[0] = false;
+                resyncPending[1] = false;
+                if (type == NetProtocol.MATCH_START) {
+                    listener.matchStarted(player, matchId);
+                } else {
+                    listener.spectateStarted(player, matchId);
+                }
+            } else {
+                listener.matchOver(player);
+            }
+        }
+    }
+
+    /**
+     * Disconnects from the server, forfeiting a match in progress
+     */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        listener.disconnected();
+    }
+}
@@ -0,0 +1,453 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Headless server for networked two-player matches.
+ * One thread runs every match: a Selector multiplexes all client sockets and
+ * its timeout doubles as the gravity clock, so the server holds no thread per
+ * client or per match. Clients are paired in the order they send JOIN, both
+ * players of a match get the same piece sequence, and inputs are applied to
+ * TetrisEngine boards as they arrive. Changed boards are sent to both players
+ * once per loop as a BoardSync delta, usually a few bytes, so a burst of inputs
+ * costs one small message. A client that reports a lost frame gets a keyframe
+ * of that board on its own. Messages go through preallocated direct buffers,
+ * and a client that
+ * stops reading until its buffer is full is disconnected rather than holding
+ * up the other matches.
+ */
+public class MatchServer implements Runnable {
+    private static final int INPUT_BUFFER_BYTES = 64;
+    // Room for many states, a client this far behind is not keeping up
+    private static final int OUTPUT_BUFFER_BYTES = 32 * NetProtocol.KEYFRAME_BYTES;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Random random = new Random();
+    private volatile boolean running = true;
+
+    // Gravity deadlines of every board in play, earliest first
+    private final PriorityQueue<Board> gravityQueue =
+        new PriorityQueue<>((a, b) -> Long.compare(a.nextTick, b.nextTick));
+    private final List<Board> changedBoards = new ArrayList<>();
+    // Connections with output queued during this loop
+    private final List<Connection> pendingFlush = new ArrayList<>();
+    private Connection waiting;
+    private int matchCount = 0;
+    private int activeMatches = 0;
+
+    /**
+     * One connected client
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer input = ByteBuffer.allocateDirect(INPUT_BUFFER_BYTES);
+        final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+        Board board;
+        // Boards this client asked to receive a keyframe of
+        final boolean[] resyncRequested = new boolean[2];
+        boolean closed = false;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * One player's board within a match
+     */
+    private static class Board {
+        final Match match;
+        final int player;
+        final TetrisEngine engine;
+        final BoardSync.Encoder encoder;
+        final Connection connection;
+        long nextTick;
+        boolean changed = false;
+
+        Board(Match match, int player, Connection connection, long seed) {
+            this.match = match;
+            this.player = player;
+            this.connection = connection;
+            this.engine = new TetrisEngine(NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT, new Random(seed));
+            this.encoder = new BoardSync.Encoder(engine, player);
+            engine.setListener(encoder);
+        }
+    }
+
+    private static class Match {
+        final int id;
+        final Board[] boards = new Board[2];
+        boolean finished = false;
+
+        Match(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Opens the listening socket
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException If the socket cannot be opened
+     */
+    public MatchServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Runs the server on a daemon thread
+     * @return The thread
+     */
+    public Thread start() {
+        Thread thread = new Thread(this, "Tetris-MatchServer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stops the server loop and closes every connection
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(millisUntilNextTick());
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (!connection.closed && key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    }
+                }
+
+                runGravity();
+                sendChanges();
+            }
+        } catch (IOException e) {
+            System.err.println("Match server stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private long millisUntilNextTick() {
+        Board next = gravityQueue.peek();
+        if (next == null) {
+            // Nothing to drop, wait for network events only
+            return 0;
+        }
+        long millis = (next.nextTick - System.nanoTime() + 999_999) / 1_000_000;
+        // select(0) blocks forever, so never return 0 while a tick is pending
+        return Math.max(1, millis);
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private void read(Connection connection) {
+        int read;
+        try {
+            read = connection.channel.read(connection.input);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (input.remaining() >= NetProtocol.CLIENT_MESSAGE_BYTES && !connection.closed) {
+            int type = input.get();
+            int argument = input.get();
+            input.getShort();
+            handleMessage(connection, type, argument);
+        }
+        input.compact();
+    }
+
+    private void handleMessage(Connection connection, int type, int argument) {
+        switch (type) {
+            case NetProtocol.JOIN:
+                if (argument != NetProtocol.VERSION) {
+                    close(connection);
+                } else if (connection.board == null || connection.board.match.finished) {
+                    join(connection);
+                }
+                break;
+            case NetProtocol.INPUT:
+                Board board = connection.board;
+                if (board != null && !board.match.finished && board.engine.apply(argument)) {
+                    markChanged(board);
+                }
+                break;
+            case NetProtocol.RESYNC:
+                if (connection.board != null && (argument == 0 || argument == 1)) {
+                    connection.resyncRequested[argument] = true;
+                    markChanged(connection.board.match.boards[argument]);
+                }
+                break;
+            default:
+                // Not speaking our protocol
+                close(connection);
+        }
+    }
+
+    private void join(Connection connection) {
+        connection.board = null;
+        connection.resyncRequested[0] = false;
+        connection.resyncRequested[1] = false;
+        if (waiting == null || waiting.closed) {
+            waiting = connection;
+            return;
+        }
+        if (waiting == connection) {
+            return;
+        }
+
+        Match match = new Match(++matchCount);
+        long seed = random.nextLong();
+        long now = System.nanoTime();
+        Connection[] players = {waiting, connection};
+        waiting = null;
+
+        for (int i = 0; i < 2; i++) {
+            Board board = new Board(match, i, players[i], seed);
+            board.engine.reset();
+            board.nextTick = now + TetrisEngine.getGravityDelay(board.engine.getLevel()) * 1_000_000L;
+            match.boards[i] = board;
+            players[i].board = board;
+            gravityQueue.add(board);
+        }
+        activeMatches++;
+
+        for (int i = 0; i < 2; i++) {
+            ByteBuffer output = reserve(players[i], NetProtocol.SHORT_MESSAGE_BYTES);
+            if (output != null) {
+                NetProtocol.putShortMessage(output, NetProtocol.MATCH_START, i, match.id);
+            }
+            markChanged(match.boards[i]);
+        }
+    }
+
+    private void markChanged(Board board) {
+        if (!board.changed) {
+            board.changed = true;
+            changedBoards.add(board);
+        }
+    }
+
+    private void runGravity() {
+        long now = System.nanoTime();
+        while (!gravityQueue.isEmpty() && gravityQueue.peek().nextTick - now <= 0) {
+            Board board = gravityQueue.poll();
+            if (board.match.finished) continue;
+
+            board.engine.tick();
+            markChanged(board);
+
+            long delay = TetrisEngine.getGravityDelay(board.engine.getLevel()) * 1_000_000L;
+            // Stay on schedule, but do not try to catch up after a long stall
+            board.nextTick = Math.max(board.nextTick + delay, now);
+            gravityQueue.add(board);
+        }
+    }
+
+    private void sendChanges() {
+        for (Board board : changedBoards) {
+            board.changed = false;
+            Match match = board.match;
+            if (match.finished) continue;
+
+            ByteBuffer frame = board.encoder.encode();
+            for (Board receiver : match.boards) {
+                Connection connection = receiver.connection;
+                if (frame != null) {
+                    send(connection, frame);
+                }
+                if (connection.resyncRequested[board.player]) {
+                    connection.resyncRequested[board.player] = false;
+                    send(connection, board.encoder.encodeResync());
+                }
+            }
+            if (board.engine.isGameOver()) {
+                finish(match, 1 - board.player);
+            }
+        }
+        changedBoards.clear();
+
+        // A failed write ends the match and queues the opponent's game over, so the list can grow while flushing
+        for (int i = 0; i < pendingFlush.size(); i++) {
+            flush(pendingFlush.get(i));
+        }
+        pendingFlush.clear();
+    }
+
+    private void send(Connection connection, ByteBuffer frame) {
+        ByteBuffer output = reserve(connection, frame.remaining());
+        if (output != null) {
+            output.put(frame.duplicate());
+        }
+    }
+
+    /**
+     * Ends a match and tells both players who won
+     * @param match The match
+     * @param winner Winning player, 0 or 1
+     */
+    private void finish(Match match, int winner) {
+        if (match.finished) return;
+        match.finished = true;
+        activeMatches--;
+        for (Board board : match.boards) {
+            ByteBuffer output = reserve(board.connection, NetProtocol.SHORT_MESSAGE_BYTES);
+            if (output != null) {
+                NetProtocol.putShortMessage(output, NetProtocol.GAME_OVER, winner, match.id);
+            }
+        }
+    }
+
+    /**
+     * Gets room in a connection's output buffer
+     * @param connection The receiver
+     * @param bytes Size of the message to write
+     * @return The buffer to write the message to, or null if the connection is closed
+     */
+    private ByteBuffer reserve(Connection connection, int bytes) {
+        if (connection.closed) return null;
+        if (connection.output.remaining() < bytes) {
+            // The client stopped reading, drop it instead of buffering without bound
+            close(connection);
+            return null;
+        }
+        if (connection.output.position() == 0) {
+            pendingFlush.add(connection);
+        }
+        return connection.output;
+    }
+
+    private void flush(Connection connection) {
+        if (connection.closed) return;
+
+        ByteBuffer output = connection.output;
+        output.flip();
+        try {
+            connection.channel.write(output);
+        } catch (IOException e) {
+            output.compact();
+            close(connection);
+            return;
+        }
+        output.compact();
+
+        // Wait for the socket to drain before writing the rest
+        int interest = output.position() > 0
+            ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+            : SelectionKey.OP_READ;
+        if (connection.key.interestOps() != interest) {
+            connection.key.interestOps(interest);
+        }
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) return;
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+
+        if (waiting == connection) {
+            waiting = null;
+        }
+        Board board = connection.board;
+        if (board != null && !board.match.finished) {
+            // Leaving forfeits the match
+            finish(board.match, 1 - board.player);
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                close((Connection) key.attachment());
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+    }
+
+    /**
+     * Gets the number of matches in progress. Only exact on the server thread.
+     * @return Active match count
+     */
+    public int getActiveMatches() {
+        return activeMatches;
+    }
+
+    /**
+     * Runs a standalone server
+     * @param args Optional port, defaults to NetProtocol.DEFAULT_PORT
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : NetProtocol.DEFAULT_PORT;
+        try {
+            MatchServer server = new MatchServer(port);
+            System.out.println("Match server listening on port " + server.getPort());
+            server.run();
+        } catch (IOException e) {
+            System.err.println("Error starting match server: " + e.getMessage());
+        }
+    }
+}
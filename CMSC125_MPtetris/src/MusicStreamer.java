@@ -0,0 +1,127 @@
+import javax.sound.sampled.AudioInputStream;
+import java.net.URL;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams a looping music track into the AudioMixer.
+ * A dedicated decoder thread reads the track from its resource a few KB at a
+ * time and writes the samples into a small ring buffer, reopening the resource
+ * when it reaches the end so the loop is seamless. The mixer thread drains the
+ * ring while mixing. Memory use is bounded by the ring regardless of how long
+ * the track is, and playback starts as soon as the first chunk is decoded.
+ */
+public class MusicStreamer {
+    // 32768 stereo frames, 128 KB, about 0.75 s at 44.1 kHz
+    private static final int RING_SAMPLES = 1 << 16;
+    private static final int RING_MASK = RING_SAMPLES - 1;
+    private static final int CHUNK_BYTES = 4096;
+    private static final long FULL_WAIT_NANOS = 2_000_000;
+
+    private final URL source;
+    private final short[] ring = new short[RING_SAMPLES];
+    // Written only by the decoder thread
+    private volatile long writePosition = 0;
+    // Written only by the mixer thread
+    private volatile long readPosition = 0;
+
+    private Thread decoderThread;
+    private volatile boolean running;
+
+    /**
+     * Constructor for a streamer
+     * @param source Location of the track to loop
+     */
+    public MusicStreamer(URL source) {
+        this.source = source;
+    }
+
+    /**
+     * Starts the decoder thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        decoderThread = new Thread(this::decodeLoop, "Tetris-MusicStreamer");
+        decoderThread.setDaemon(true);
+        decoderThread.start();
+    }
+
+    /**
+     * Stops the decoder thread. Samples still in the ring are discarded.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (decoderThread != null) {
+            decoderThread.interrupt();
+            decoderThread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Adds buffered samples to a mix. Called from the mixer thread only.
+     * Underruns are left silent rather than waiting for the decoder.
+     * @param mix Interleaved mix accumulator in the mixer's output format
+     * @param gain Linear gain between 0 and 1
+     */
+    public void mixInto(int[] mix, float gain) {
+        long read = readPosition;
+        int count = (int) Math.min(mix.length, writePosition - read);
+        for (int i = 0; i < count; i++) {
+            mix[i] += (int) (ring[(int) ((read + i) & RING_MASK)] * gain);
+        }
+        readPosition = read + count;
+    }
+
+    private void decodeLoop() {
+        byte[] chunk = new byte[CHUNK_BYTES];
+        while (running) {
+            try (AudioInputStream stream = AudioMixer.openConverted(source)) {
+                long passBytes = 0;
+                int read;
+                while (running && (read = stream.read(chunk)) > 0) {
+                    writeSamples(chunk, read);
+                    passBytes += read;
+                }
+                if (running && passBytes == 0) {
+                    // An empty or truncated track would be reopened in a tight loop
+                    System.err.println("Error streaming music: no audio data in " + source);
+                    running = false;
+                }
+                // End of track, loop by reopening the resource
+            } catch (Exception e) {
+                if (running) {
+                    System.err.println("Error streaming music: " + e.getMessage());
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void writeSamples(byte[] chunk, int length) {
+        int samples = length / 2;
+        long write = writePosition;
+
+        // Wait for the mixer to make room
+        while (running && write + samples - readPosition > RING_SAMPLES) {
+            LockSupport.parkNanos(FULL_WAIT_NANOS);
+            if (Thread.interrupted()) {
+                running = false;
+            }
+        }
+        if (!running) {
+            return;
+        }
+
+        for (int i = 0; i < samples; i++) {
+            ring[(int) ((write + i) & RING_MASK)] =
+                (short) ((chunk[i * 2] & 0xFF) | (chunk[i * 2 + 1] << 8));
+        }
+        writePosition = write + samples;
+    }
+}
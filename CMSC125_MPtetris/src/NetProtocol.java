@@ -0,0 +1,87 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format shared by MatchServer, SpectatorBroadcaster and MatchClient.
+ * The size of every message follows from its first bytes, so both sides read
+ * straight from a ByteBuffer without parsing. Clients send 4-byte messages.
+ * The server sends MATCH_START, GAME_OVER and SPECTATE_START as 8 bytes, and boards as
+ * BoardSync frames: fixed-size keyframes and deltas that carry their length.
+ * Multi-byte values are big-endian.
+ */
+public final class NetProtocol {
+    public static final int DEFAULT_PORT = 7777;
+    public static final int VERSION = 2;
+
+    // Matches are always played on a standard board
+    public static final int BOARD_WIDTH = 10;
+    public static final int BOARD_HEIGHT = 20;
+
+    // Client to server
+    public static final int JOIN = 1;
+    public static final int INPUT = 2;
+    // Asks for a keyframe of the board given as the argument
+    public static final int RESYNC = 3;
+    public static final int CLIENT_MESSAGE_BYTES = 4;
+
+    // Input actions sent with INPUT
+    public static final int MOVE_LEFT = TetrisEngine.MOVE_LEFT;
+    public static final int MOVE_RIGHT = TetrisEngine.MOVE_RIGHT;
+    public static final int MOVE_DOWN = TetrisEngine.MOVE_DOWN;
+    public static final int ROTATE = TetrisEngine.ROTATE;
+    public static final int HARD_DROP = TetrisEngine.HARD_DROP;
+    public static final int HOLD = TetrisEngine.HOLD;
+
+    // Server to client
+    public static final int MATCH_START = 16;
+    public static final int KEYFRAME = 17;
+    public static final int GAME_OVER = 18;
+    public static final int DELTA = 19;
+    // Sent to SpectatorBroadcaster viewers when a game starts, carries the board count
+    public static final int SPECTATE_START = 20;
+
+    public static final int SHORT_MESSAGE_BYTES = 8;
+    public static final int KEYFRAME_BYTES = BoardSync.keyframeBytes(BOARD_WIDTH, BOARD_HEIGHT);
+
+    private NetProtocol() {
+    }
+
+    /**
+     * Gets the size of the server message at the buffer's position
+     * @param buffer Buffer holding at least the message's first byte
+     * @return Message size in bytes, 0 if more bytes are needed to tell, or -1 for an unknown type
+     */
+    public static int serverMessageSize(ByteBuffer buffer) {
+        int position = buffer.position();
+        switch (buffer.get(position)) {
+            case MATCH_START:
+            case GAME_OVER:
+            case SPECTATE_START:
+                return SHORT_MESSAGE_BYTES;
+            case KEYFRAME:
+                return KEYFRAME_BYTES;
+            case DELTA:
+                if (buffer.remaining() <= BoardSync.DELTA_LENGTH_OFFSET) {
+                    return 0;
+                }
+                return buffer.get(position + BoardSync.DELTA_LENGTH_OFFSET) & 0xFF;
+            default:
+                return -1;
+        }
+    }
+
+    public static void putClientMessage(ByteBuffer buffer, int type, int argument) {
+        buffer.put((byte) type).put((byte) argument).putShort((short) 0);
+    }
+
+    /**
+     * Writes a MATCH_START, GAME_OVER or SPECTATE_START message
+     * @param buffer Buffer to write to
+     * @param type MATCH_START, GAME_OVER or SPECTATE_START
+     * @param player Receiving player for MATCH_START, winning player for GAME_OVER,
+     *               board count for SPECTATE_START
+     * @param value Match or game number
+     */
+    public static void putShortMessage(ByteBuffer buffer, int type, int player, int value) {
+        buffer.put((byte) type).put((byte) player).putShort((short) 0).putInt(value);
+    }
+}
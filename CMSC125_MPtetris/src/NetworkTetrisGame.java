@@ -0,0 +1,349 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Two-player Tetris against a player on another machine.
+ * The game runs on a MatchServer. This window only sends key presses and
+ * shows both boards as the server reports them, so it has no game threads.
+ * The same window watches a game on a SpectatorBroadcaster, see spectate.
+ */
+public class NetworkTetrisGame extends JFrame implements TetrisGameInterface {
+    private static final String WAITING_MESSAGE = "WAITING FOR\nOPPONENT\nM = Menu";
+    private static final String SPECTATE_WAITING_MESSAGE = "WAITING FOR\nA GAME\nM = Menu";
+
+    private GameBoard[] boards = new GameBoard[2];
+    private PreviewPanel[] nextPanels = new PreviewPanel[2];
+    private PreviewPanel[] holdPanels = new PreviewPanel[2];
+    private JLabel[] nameLabels = new JLabel[2];
+    private JLabel[] scoreLabels = new JLabel[2];
+    private JLabel[] levelLabels = new JLabel[2];
+    private JLabel[] linesLabels = new JLabel[2];
+    private int[] shownLines = new int[2];
+
+    private final AtomicBoolean isGameOver = new AtomicBoolean(true);
+    private final ReentrantLock gameLock = new ReentrantLock();
+    private final GameEventBus eventBus = new GameEventBus();
+    private SoundManager soundManager;
+    private MatchClient client;
+    private MatchServer hostedServer;
+    // Index of this window's player on the server, -1 until a match starts
+    private volatile int localPlayer = -1;
+    // Watching without playing, set on the EDT before any server event is handled
+    private volatile boolean spectating = false;
+
+    /**
+     * Creates the window and connects to a match server
+     * @param host Server host name
+     * @param port Server port
+     * @param hostedServer Server started by this window, stopped when it closes, or null
+     * @throws IOException If the server cannot be reached
+     */
+    public NetworkTetrisGame(String host, int port, MatchServer hostedServer) throws IOException {
+        this.hostedServer = hostedServer;
+        setTitle("Network Tetris");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setResizable(false);
+        soundManager = new SoundManager(true);
+        setupGameComponents();
+        setupKeyBindings();
+        pack();
+        setLocationRelativeTo(null);
+
+        TetrisEngine[] mirrors = {boards[0].getEngine(), boards[1].getEngine()};
+        try {
+            client = new MatchClient(host, port, mirrors, gameLock, new ClientListener());
+        } catch (IOException e) {
+            soundManager.cleanup();
+            for (GameBoard board : boards) {
+                board.cleanup();
+            }
+            dispose();
+            throw e;
+        }
+    }
+
+    private void setupGameComponents() {
+        JPanel mainPanel = new JPanel(new GridLayout(1, 2, 20, 0));
+        mainPanel.setBackground(new Color(44, 62, 80));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        for (int i = 0; i < 2; i++) {
+            JPanel playerPanel = createPlayerPanel(i);
+            boards[i] = new GameBoard(this, NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT, 30);
+            boards[i].setMessage(WAITING_MESSAGE);
+            playerPanel.add(boards[i], BorderLayout.CENTER);
+            mainPanel.add(playerPanel);
+        }
+        add(mainPanel);
+    }
+
+    private JPanel createPlayerPanel(int player) {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBackground(new Color(44, 62, 80));
+
+        JPanel sidePanel = new JPanel();
+        sidePanel.setLayout(new BoxLayout(sidePanel, BoxLayout.Y_AXIS));
+        sidePanel.setBackground(new Color(44, 62, 80));
+        sidePanel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        sidePanel.setPreferredSize(new Dimension(140, 0));
+
+        nameLabels[player] = createLabel("Player " + (player + 1));
+        nameLabels[player].setFont(new Font("Arial", Font.BOLD, 16));
+        sidePanel.add(nameLabels[player]);
+        sidePanel.add(Box.createVerticalStrut(10));
+
+        nextPanels[player] = createPreviewPanel();
+        holdPanels[player] = createPreviewPanel();
+        scoreLabels[player] = createLabel("Score: 0");
+        levelLabels[player] = createLabel("Level: 1");
+        linesLabels[player] = createLabel("Lines: 0");
+
+        sidePanel.add(createLabel("Next Piece:"));
+        sidePanel.add(nextPanels[player]);
+        sidePanel.add(Box.createVerticalStrut(10));
+        sidePanel.add(createLabel("Hold Piece:"));
+        sidePanel.add(holdPanels[player]);
+        sidePanel.add(Box.createVerticalStrut(10));
+        sidePanel.add(scoreLabels[player]);
+        sidePanel.add(levelLabels[player]);
+        sidePanel.add(linesLabels[player]);
+
+        sidePanel.add(createLabel("Controls:"));
+        sidePanel.add(Box.createVerticalStrut(10));
+        String[] controls = {
+            "← → : Move",
+            "↑ : Rotate",
+            "↓ : Soft Drop",
+            "Space : Hard Drop",
+            "C : Hold"
+        };
+        for (String control : controls) {
+            sidePanel.add(createLabel(control));
+            sidePanel.add(Box.createVerticalStrut(5));
+        }
+
+        panel.add(sidePanel, BorderLayout.EAST);
+        return panel;
+    }
+
+    private JLabel createLabel(String text) {
+        JLabel label = new JLabel(text);
+        label.setForeground(Color.WHITE);
+        label.setAlignmentX(Component.CENTER_ALIGNMENT);
+        return label;
+    }
+
+    private PreviewPanel createPreviewPanel() {
+        PreviewPanel previewPanel = new PreviewPanel(4, 30);
+        previewPanel.setPreferredSize(new Dimension(120, 120));
+        previewPanel.setBorder(BorderFactory.createLineBorder(Color.GRAY));
+        previewPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        return previewPanel;
+    }
+
+    private void setupKeyBindings() {
+        JComponent root = getRootPane();
+        InputMap inputMap = root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        ActionMap actionMap = root.getActionMap();
+
+        bindInput(inputMap, actionMap, KeyEvent.VK_LEFT, "moveLeft", NetProtocol.MOVE_LEFT);
+        bindInput(inputMap, actionMap, KeyEvent.VK_RIGHT, "moveRight", NetProtocol.MOVE_RIGHT);
+        bindInput(inputMap, actionMap, KeyEvent.VK_DOWN, "moveDown", NetProtocol.MOVE_DOWN);
+        bindInput(inputMap, actionMap, KeyEvent.VK_UP, "rotate", NetProtocol.ROTATE);
+        bindInput(inputMap, actionMap, KeyEvent.VK_SPACE, "hardDrop", NetProtocol.HARD_DROP);
+        bindInput(inputMap, actionMap, KeyEvent.VK_C, "holdPiece", NetProtocol.HOLD);
+
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_M, 0), "returnToMenu");
+        actionMap.put("returnToMenu", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                returnToMenu();
+            }
+        });
+
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_R, 0), "restartGame");
+        actionMap.put("restartGame", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (isGameOver.get() && localPlayer >= 0) {
+                    startGame();
+                }
+            }
+        });
+    }
+
+    private void bindInput(InputMap inputMap, ActionMap actionMap, int keyCode, String name, int action) {
+        inputMap.put(KeyStroke.getKeyStroke(keyCode, 0), name);
+        actionMap.put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isGameOver.get() && !spectating) {
+                    client.sendInput(action);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the server for a match, the boards show a waiting message until an opponent joins
+     */
+    public void startGame() {
+        localPlayer = -1;
+        for (GameBoard board : boards) {
+            board.setMessage(WAITING_MESSAGE);
+        }
+        client.join();
+    }
+
+    /**
+     * Watches the game on a SpectatorBroadcaster instead of playing
+     */
+    public void spectate() {
+        spectating = true;
+        setTitle("Tetris Spectator");
+        for (GameBoard board : boards) {
+            board.setMessage(SPECTATE_WAITING_MESSAGE);
+        }
+    }
+
+    /**
+     * Handles server events, called on the client's reader thread
+     */
+    private class ClientListener implements MatchClient.Listener {
+        @Override
+        public void matchStarted(int player, int matchId) {
+            SwingUtilities.invokeLater(() -> {
+                localPlayer = player;
+                isGameOver.set(false);
+                for (int i = 0; i < 2; i++) {
+                    shownLines[i] = 0;
+                    nameLabels[i].setText(i == player ? "You" : "Opponent");
+                    boards[i].clearMessage();
+                }
+                setTitle("Network Tetris - Match " + matchId);
+                soundManager.playBackgroundMusic();
+            });
+        }
+
+        @Override
+        public void spectateStarted(int boardCount, int gameId) {
+            SwingUtilities.invokeLater(() -> {
+                // Shows the pieces, inputs stay off while spectating
+                isGameOver.set(false);
+                for (int i = 0; i < 2; i++) {
+                    shownLines[i] = 0;
+                    nameLabels[i].setText(boardCount == 1 ? "Player" : "Player " + (i + 1));
+                    if (i < boardCount) {
+                        boards[i].clearMessage();
+                    } else {
+                        boards[i].setMessage("SINGLE PLAYER\nGAME");
+                    }
+                }
+                setTitle("Tetris Spectator - Game " + gameId);
+            });
+        }
+
+        @Override
+        public void stateReceived(int player) {
+            SwingUtilities.invokeLater(() -> updatePlayerInfo(player));
+        }
+
+        @Override
+        public void matchOver(int winner) {
+            SwingUtilities.invokeLater(() -> {
+                if (localPlayer < 0) return;
+                gameOver();
+                for (int i = 0; i < 2; i++) {
+                    boards[i].showGameOverMessage((i == winner ? "WINNER" : "GAME OVER") + "\nR = Play Again\nM = Menu");
+                }
+            });
+        }
+
+        @Override
+        public void disconnected() {
+            SwingUtilities.invokeLater(() -> {
+                isGameOver.set(true);
+                localPlayer = -1;
+                for (GameBoard board : boards) {
+                    board.showGameOverMessage("DISCONNECTED\nM = Menu");
+                }
+            });
+        }
+    }
+
+    private void updatePlayerInfo(int player) {
+        TetrisEngine engine = boards[player].getEngine();
+        int score;
+        int lines;
+        int level;
+        gameLock.lock();
+        try {
+            score = engine.getScore();
+            lines = engine.getLines();
+            level = engine.getLevel();
+            nextPanels[player].updatePreview(engine.getNextPiece());
+            holdPanels[player].updatePreview(engine.getHoldPiece());
+        } finally {
+            gameLock.unlock();
+        }
+
+        scoreLabels[player].setText("Score: " + score);
+        levelLabels[player].setText("Level: " + level);
+        linesLabels[player].setText("Lines: " + lines);
+        if (player == localPlayer && lines > shownLines[player]) {
+            soundManager.playLineClearSound();
+        }
+        shownLines[player] = lines;
+        if (spectating && boards[player].getEngine().isGameOver()) {
+            // Spectators get no GAME_OVER message, the board itself says so
+            boards[player].showGameOverMessage("GAME OVER\nM = Menu");
+        }
+    }
+
+    private void returnToMenu() {
+        client.close();
+        if (hostedServer != null) {
+            hostedServer.stop();
+        }
+        soundManager.cleanup();
+        for (GameBoard board : boards) {
+            board.cleanup();
+        }
+        new GameModeScreen().setVisible(true);
+        dispose();
+    }
+
+    @Override
+    public GameEventBus getEventBus() {
+        // The mirrors are loaded from server frames and never publish events
+        return eventBus;
+    }
+
+    private void gameOver() {
+        if (isGameOver.getAndSet(true)) {
+            return;
+        }
+        soundManager.stopBackgroundMusic();
+        soundManager.playGameOverSound();
+    }
+
+    @Override
+    public boolean isPaused() {
+        // A networked match cannot be paused by one player
+        return false;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return isGameOver.get();
+    }
+
+    @Override
+    public ReentrantLock getGameLock() {
+        return gameLock;
+    }
+}
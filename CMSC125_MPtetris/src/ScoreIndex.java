@@ -0,0 +1,155 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Order-statistic index over scores saved since the last compaction.
+ * A treap ordered by score, highest first, with ties kept in insertion order.
+ * Every node tracks the size of its subtree, so inserting, ranking a score and
+ * fetching the k-th entry take O(log n) expected time, and the top n entries
+ * take O(log n + n). Not thread safe.
+ */
+public class ScoreIndex {
+    private final Random random = new Random();
+    private Node root;
+    private long nextSequence = 0;
+
+    private static class Node {
+        final HighScoreManager.ScoreEntry entry;
+        final long sequence;
+        final int priority;
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(HighScoreManager.ScoreEntry entry, long sequence, int priority) {
+            this.entry = entry;
+            this.sequence = sequence;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * Adds an entry after every existing entry with the same score
+     * @param entry The entry to add
+     */
+    public void insert(HighScoreManager.ScoreEntry entry) {
+        root = insert(root, new Node(entry, nextSequence++, random.nextInt()));
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (comesBefore(added, node)) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static boolean comesBefore(Node a, Node b) {
+        int scoreA = a.entry.getScore();
+        int scoreB = b.entry.getScore();
+        return scoreA != scoreB ? scoreA > scoreB : a.sequence < b.sequence;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Counts the entries with a strictly higher score
+     * @param score The score to rank
+     * @return Number of entries ranked above the score
+     */
+    public int countAbove(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.entry.getScore() > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the entry at a position
+     * @param position Zero based position, 0 is the highest score
+     * @return The entry, or null if out of range
+     */
+    public HighScoreManager.ScoreEntry get(int position) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (position < leftSize) {
+                node = node.left;
+            } else if (position == leftSize) {
+                return node.entry;
+            } else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the highest entries in order
+     * @param count Maximum number of entries
+     * @return Up to count entries, highest first
+     */
+    public List<HighScoreManager.ScoreEntry> top(int count) {
+        List<HighScoreManager.ScoreEntry> result = new ArrayList<>(Math.min(count, size()));
+        Deque<Node> stack = new ArrayDeque<>();
+        Node node = root;
+        while (result.size() < count && (node != null || !stack.isEmpty())) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            result.add(node.entry);
+            node = node.right;
+        }
+        return result;
+    }
+}
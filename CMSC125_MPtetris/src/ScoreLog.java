@@ -0,0 +1,306 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk storage for the full score history.
+ * Every game is appended to a binary log as a length-prefixed, checksummed
+ * record, so saving costs one small write regardless of history size and a
+ * write torn by a crash is detected and dropped on the next start. Compaction
+ * writes the whole history, already sorted, to a MappedScoreTable named after
+ * the new log generation and starts that generation's log. Startup maps the
+ * latest table and only replays the log records written since the last
+ * compaction.
+ */
+public class ScoreLog implements Closeable {
+    private static final String LOG_FILE = "scores.log";
+    private static final String TABLE_PREFIX = "scores-";
+    private static final String TABLE_SUFFIX = ".table";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int LOG_MAGIC = 0x54534C47; // "TSLG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int LOG_HEADER_BYTES = 16;
+    // Records larger than this can only come from a corrupt length prefix
+    private static final int MAX_RECORD_BYTES = 1024;
+
+    private final Path directory;
+    private final Path logPath;
+    private FileChannel logChannel;
+    private long generation = 0;
+    private int entriesSinceCompaction = 0;
+
+    /**
+     * Constructor for a log kept in a directory
+     * @param directory Directory holding the log and table files
+     */
+    public ScoreLog(Path directory) {
+        this.directory = directory.toAbsolutePath();
+        logPath = this.directory.resolve(LOG_FILE);
+    }
+
+    /**
+     * Checks if any history has been stored yet
+     * @return true if a log or table file exists
+     * @throws IOException If the directory cannot be listed
+     */
+    public boolean exists() throws IOException {
+        return Files.exists(logPath) || !listTables().isEmpty();
+    }
+
+    /**
+     * Maps the table written by the last compaction and removes older tables
+     * @return The latest table, or an empty table if none has been written
+     * @throws IOException If the latest table exists but cannot be mapped
+     */
+    public MappedScoreTable openTable() throws IOException {
+        List<Path> tables = listTables();
+        if (tables.isEmpty()) {
+            return MappedScoreTable.EMPTY;
+        }
+
+        Path latest = tables.get(0);
+        MappedScoreTable table;
+        try {
+            table = MappedScoreTable.open(latest);
+        } catch (IOException e) {
+            // Keep the damaged file for recovery instead of overwriting it at the next compaction
+            AtomicFiles.move(latest, latest.resolveSibling(latest.getFileName() + ".corrupt"));
+            throw e;
+        }
+        generation = table.getGeneration();
+
+        for (Path stale : tables.subList(1, tables.size())) {
+            deleteQuietly(stale);
+        }
+        return table;
+    }
+
+    private List<Path> listTables() throws IOException {
+        List<Path> tables = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, TABLE_PREFIX + "*" + TABLE_SUFFIX)) {
+            for (Path path : stream) {
+                if (tableGeneration(path) >= 0) {
+                    tables.add(path);
+                }
+            }
+        }
+        // Newest generation first
+        tables.sort(Comparator.comparingLong(ScoreLog::tableGeneration).reversed());
+        return tables;
+    }
+
+    private static long tableGeneration(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(TABLE_PREFIX.length(), name.length() - TABLE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path tablePath(long tableGeneration) {
+        return directory.resolve(TABLE_PREFIX + tableGeneration + TABLE_SUFFIX);
+    }
+
+    /**
+     * Reads the log records written since the last compaction and opens the log for appending.
+     * A torn record at the end of the log is truncated away.
+     * Must be called after openTable.
+     * @return Entries in the order they were saved
+     * @throws IOException If the log cannot be read or created
+     */
+    public List<HighScoreManager.ScoreEntry> replayLog() throws IOException {
+        List<HighScoreManager.ScoreEntry> entries = new ArrayList<>();
+        if (!Files.exists(logPath)) {
+            resetLog(generation);
+            return entries;
+        }
+
+        FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        readFully(channel, header);
+        header.flip();
+        if (header.remaining() < LOG_HEADER_BYTES
+                || header.getInt() != LOG_MAGIC || header.getInt() != FORMAT_VERSION) {
+            channel.close();
+            throw new IOException("Unrecognized score log format");
+        }
+        long logGeneration = header.getLong();
+        if (logGeneration < generation) {
+            // Compaction finished but the log was not reset, its records are in the table
+            channel.close();
+            resetLog(generation);
+            return entries;
+        }
+        generation = logGeneration;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        long validLength = LOG_HEADER_BYTES;
+        CRC32 checksum = new CRC32();
+        byte[] payload = new byte[MAX_RECORD_BYTES];
+        while (true) {
+            try {
+                int length = in.readInt();
+                int storedChecksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                in.readFully(payload, 0, length);
+                checksum.reset();
+                checksum.update(payload, 0, length);
+                if ((int) checksum.getValue() != storedChecksum) {
+                    break;
+                }
+                entries.add(readEntry(new DataInputStream(new ByteArrayInputStream(payload, 0, length))));
+                validLength += 8 + length;
+            } catch (EOFException e) {
+                break;
+            }
+        }
+
+        if (validLength < channel.size()) {
+            System.err.println("Discarding incomplete score log record");
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(validLength);
+        logChannel = channel;
+        entriesSinceCompaction = entries.size();
+        return entries;
+    }
+
+    /**
+     * Appends entries to the log and forces them to disk
+     * @param entries Entries to append
+     * @throws IOException If the write fails
+     */
+    public void append(List<HighScoreManager.ScoreEntry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        CRC32 checksum = new CRC32();
+        for (HighScoreManager.ScoreEntry entry : entries) {
+            payloadBytes.reset();
+            writeEntry(new DataOutputStream(payloadBytes), entry);
+            byte[] payload = payloadBytes.toByteArray();
+            checksum.reset();
+            checksum.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) checksum.getValue());
+            out.write(payload);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            logChannel.write(buffer);
+        }
+        logChannel.force(false);
+        entriesSinceCompaction += entries.size();
+    }
+
+    /**
+     * Gets the number of entries only stored in the log
+     * @return Entries appended since the last compaction
+     */
+    public int getEntriesSinceCompaction() {
+        return entriesSinceCompaction;
+    }
+
+    /**
+     * Writes the full history to a new table and starts a new, empty log.
+     * The table must contain exactly the entries stored so far.
+     * @param sorted Every entry, sorted by score, highest first
+     * @param count Number of entries returned by sorted
+     * @param playerBests Best entry of every player
+     * @return The new table, mapped
+     * @throws IOException If the table cannot be written
+     */
+    public MappedScoreTable compact(Iterator<HighScoreManager.ScoreEntry> sorted, int count,
+                                    List<HighScoreManager.ScoreEntry> playerBests) throws IOException {
+        long nextGeneration = generation + 1;
+        Path previous = tablePath(generation);
+        Path target = tablePath(nextGeneration);
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        MappedScoreTable.write(temp, nextGeneration, sorted, count, playerBests);
+        AtomicFiles.move(temp, target);
+
+        // A crash before the log is reset is safe, the old generation is skipped on replay
+        resetLog(nextGeneration);
+
+        // Some platforms refuse to delete a mapped file, openTable retries at the next start
+        deleteQuietly(previous);
+        return MappedScoreTable.open(target);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Still in use, removed at the next start
+        }
+    }
+
+    private void resetLog(long newGeneration) throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+            logChannel = null;
+        }
+
+        Path temp = logPath.resolveSibling(LOG_FILE + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+            header.putInt(LOG_MAGIC).putInt(FORMAT_VERSION).putLong(newGeneration).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        AtomicFiles.move(temp, logPath);
+
+        logChannel = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        logChannel.position(logChannel.size());
+        generation = newGeneration;
+        entriesSinceCompaction = 0;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, HighScoreManager.ScoreEntry entry) throws IOException {
+        out.writeLong(entry.getPlayedAt());
+        out.writeInt(entry.getScore());
+        out.writeInt(entry.getLines());
+        out.writeInt(entry.getLevel());
+        out.writeUTF(entry.getUsername());
+    }
+
+    private static HighScoreManager.ScoreEntry readEntry(DataInputStream in) throws IOException {
+        long playedAt = in.readLong();
+        int score = in.readInt();
+        int lines = in.readInt();
+        int level = in.readInt();
+        String username = in.readUTF();
+        return new HighScoreManager.ScoreEntry(username, score, lines, level, playedAt);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+            logChannel = null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+/**
+ * Counters describing one game, kept by the board while the game runs.
+ * Every counter is a primitive field updated under the game lock, so
+ * recording costs a few increments and never allocates.
+ */
+public class SessionStats {
+    private long startNanos;
+    private long endNanos;
+    private int piecesPlaced;
+    private int inputs;
+    private int holds;
+    private int maxStackHeight;
+    // Indexed by lines cleared at once, 1 to 4
+    private final int[] clears = new int[5];
+
+    /**
+     * Resets every counter and starts timing a new game
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+        piecesPlaced = 0;
+        inputs = 0;
+        holds = 0;
+        maxStackHeight = 0;
+        Arrays.fill(clears, 0);
+    }
+
+    /**
+     * Stops timing the game. Later calls have no effect until the next start.
+     */
+    public void finish() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public void recordInput() {
+        inputs++;
+    }
+
+    public void recordHold() {
+        holds++;
+    }
+
+    /**
+     * Records a locked piece
+     * @param linesCleared Lines cleared by the piece
+     * @param stackHeight Stack height after the piece locked and lines cleared
+     */
+    public void recordPiecePlaced(int linesCleared, int stackHeight) {
+        piecesPlaced++;
+        if (linesCleared > 0 && linesCleared < clears.length) {
+            clears[linesCleared]++;
+        }
+        if (stackHeight > maxStackHeight) {
+            maxStackHeight = stackHeight;
+        }
+    }
+
+    /**
+     * Gets the game duration, up to now if the game has not finished
+     * @return Duration in milliseconds
+     */
+    public long getDurationMillis() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    public int getPiecesPlaced() { return piecesPlaced; }
+    public int getInputs() { return inputs; }
+    public int getHolds() { return holds; }
+    public int getMaxStackHeight() { return maxStackHeight; }
+
+    /**
+     * Gets how many times a number of lines was cleared at once
+     * @param lines 1 for singles up to 4 for tetrises
+     * @return Number of such clears
+     */
+    public int getClears(int lines) {
+        return clears[lines];
+    }
+
+    public double getPiecesPerSecond() {
+        long millis = getDurationMillis();
+        return millis == 0 ? 0 : piecesPlaced * 1000.0 / millis;
+    }
+
+    public double getInputsPerPiece() {
+        return piecesPlaced == 0 ? 0 : (double) inputs / piecesPlaced;
+    }
+}
@@ -0,0 +1,404 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store of the SessionStats of every finished game.
+ * Each game is appended to sessions.dat as a fixed 128-byte binary record by a
+ * background writer, so finishing a game never waits for the disk. The store
+ * also keeps every session in memory as primitive columns, one array per
+ * field, so aggregate queries over thousands of sessions scan a few int arrays
+ * instead of walking objects.
+ */
+public class SessionStatsStore {
+    private static final String SESSIONS_FILE = "sessions.dat";
+    private static final int MAGIC = 0x54535353; // "TSSS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 128;
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Record layout, the bytes after the name are reserved
+    private static final int ENDED_AT_OFFSET = 0;
+    private static final int DURATION_OFFSET = 8;
+    private static final int SCORE_OFFSET = 12;
+    private static final int LINES_OFFSET = 16;
+    private static final int LEVEL_OFFSET = 20;
+    private static final int PIECES_OFFSET = 24;
+    private static final int INPUTS_OFFSET = 28;
+    private static final int HOLDS_OFFSET = 32;
+    private static final int MAX_STACK_OFFSET = 36;
+    private static final int CLEARS_OFFSET = 40; // Four ints, singles to tetrises
+    private static final int NAME_LENGTH_OFFSET = 56;
+    private static final int NAME_OFFSET = 57;
+
+    // Columns, one element per session
+    private int size = 0;
+    private long[] endedAt = new long[INITIAL_CAPACITY];
+    private int[] playerIds = new int[INITIAL_CAPACITY];
+    private int[] durationMillis = new int[INITIAL_CAPACITY];
+    private int[] scores = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+    private int[] levels = new int[INITIAL_CAPACITY];
+    private int[] pieces = new int[INITIAL_CAPACITY];
+    private int[] inputs = new int[INITIAL_CAPACITY];
+    private int[] holds = new int[INITIAL_CAPACITY];
+    private int[] maxStackHeights = new int[INITIAL_CAPACITY];
+    private int[][] clears = new int[4][INITIAL_CAPACITY];
+
+    private final List<String> playerNames = new ArrayList<>();
+    private final Map<String, Integer> playerIdsByName = new HashMap<>();
+
+    private final Path path = Paths.get(SESSIONS_FILE).toAbsolutePath();
+    private final BackgroundWriter writer;
+    private final List<ByteBuffer> pendingRecords = new ArrayList<>();
+    private boolean writeScheduled = false;
+    private FileChannel channel;
+
+    /**
+     * Aggregates over a set of sessions
+     */
+    public static class Summary {
+        private final int games;
+        private final double averageScore;
+        private final double averagePiecesPerSecond;
+        private final double averageInputsPerPiece;
+        private final double averageDurationSeconds;
+        private final double averageMaxStackHeight;
+        private final double holdsPerPiece;
+        private final int[] totalClears;
+        private final int medianScore;
+        private final int p90Score;
+        private final double medianPiecesPerSecond;
+        private final double p90PiecesPerSecond;
+
+        Summary(int games, double averageScore, double averagePiecesPerSecond, double averageInputsPerPiece,
+                double averageDurationSeconds, double averageMaxStackHeight, double holdsPerPiece,
+                int[] totalClears, int medianScore, int p90Score,
+                double medianPiecesPerSecond, double p90PiecesPerSecond) {
+            this.games = games;
+            this.averageScore = averageScore;
+            this.averagePiecesPerSecond = averagePiecesPerSecond;
+            this.averageInputsPerPiece = averageInputsPerPiece;
+            this.averageDurationSeconds = averageDurationSeconds;
+            this.averageMaxStackHeight = averageMaxStackHeight;
+            this.holdsPerPiece = holdsPerPiece;
+            this.totalClears = totalClears;
+            this.medianScore = medianScore;
+            this.p90Score = p90Score;
+            this.medianPiecesPerSecond = medianPiecesPerSecond;
+            this.p90PiecesPerSecond = p90PiecesPerSecond;
+        }
+
+        public int getGames() { return games; }
+        public double getAverageScore() { return averageScore; }
+        public double getAveragePiecesPerSecond() { return averagePiecesPerSecond; }
+        public double getAverageInputsPerPiece() { return averageInputsPerPiece; }
+        public double getAverageDurationSeconds() { return averageDurationSeconds; }
+        public double getAverageMaxStackHeight() { return averageMaxStackHeight; }
+        public double getHoldsPerPiece() { return holdsPerPiece; }
+        public int getMedianScore() { return medianScore; }
+        public int getP90Score() { return p90Score; }
+        public double getMedianPiecesPerSecond() { return medianPiecesPerSecond; }
+        public double getP90PiecesPerSecond() { return p90PiecesPerSecond; }
+
+        /**
+         * Gets the total number of clears of a size
+         * @param lineCount 1 for singles up to 4 for tetrises
+         * @return Clears of that size over all games
+         */
+        public int getTotalClears(int lineCount) {
+            return totalClears[lineCount - 1];
+        }
+    }
+
+    public SessionStatsStore() {
+        try {
+            load();
+        } catch (IOException e) {
+            System.err.println("Error loading session stats: " + e.getMessage());
+        }
+
+        writer = new BackgroundWriter("SessionStats", "session stats");
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        ByteBuffer contents;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            contents = ByteBuffer.allocate((int) in.size());
+            while (contents.hasRemaining() && in.read(contents) > 0) {
+                // Keep reading until the buffer is full or the file ends
+            }
+        }
+        contents.flip();
+
+        if (contents.remaining() < HEADER_BYTES
+                || contents.getInt(0) != MAGIC || contents.getInt(4) != FORMAT_VERSION
+                || contents.getInt(8) != RECORD_BYTES) {
+            // Keep the damaged file for recovery and start a new one
+            Files.move(path, path.resolveSibling(SESSIONS_FILE + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+            throw new IOException("Unrecognized session stats format");
+        }
+
+        int count = (contents.remaining() - HEADER_BYTES) / RECORD_BYTES;
+        byte[] name = new byte[MappedScoreTable.MAX_NAME_BYTES];
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            int nameLength = Math.min(contents.get(offset + NAME_LENGTH_OFFSET), name.length);
+            contents.get(offset + NAME_OFFSET, name, 0, nameLength);
+
+            int index = addColumns(playerId(new String(name, 0, nameLength, StandardCharsets.UTF_8)));
+            endedAt[index] = contents.getLong(offset + ENDED_AT_OFFSET);
+            durationMillis[index] = contents.getInt(offset + DURATION_OFFSET);
+            scores[index] = contents.getInt(offset + SCORE_OFFSET);
+            lines[index] = contents.getInt(offset + LINES_OFFSET);
+            levels[index] = contents.getInt(offset + LEVEL_OFFSET);
+            pieces[index] = contents.getInt(offset + PIECES_OFFSET);
+            inputs[index] = contents.getInt(offset + INPUTS_OFFSET);
+            holds[index] = contents.getInt(offset + HOLDS_OFFSET);
+            maxStackHeights[index] = contents.getInt(offset + MAX_STACK_OFFSET);
+            for (int c = 0; c < 4; c++) {
+                clears[c][index] = contents.getInt(offset + CLEARS_OFFSET + c * 4);
+            }
+        }
+    }
+
+    private int playerId(String name) {
+        Integer id = playerIdsByName.get(name);
+        if (id == null) {
+            id = playerNames.size();
+            playerNames.add(name);
+            playerIdsByName.put(name, id);
+        }
+        return id;
+    }
+
+    private int addColumns(int playerId) {
+        if (size == scores.length) {
+            int capacity = size * 2;
+            endedAt = Arrays.copyOf(endedAt, capacity);
+            playerIds = Arrays.copyOf(playerIds, capacity);
+            durationMillis = Arrays.copyOf(durationMillis, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            pieces = Arrays.copyOf(pieces, capacity);
+            inputs = Arrays.copyOf(inputs, capacity);
+            holds = Arrays.copyOf(holds, capacity);
+            maxStackHeights = Arrays.copyOf(maxStackHeights, capacity);
+            for (int c = 0; c < 4; c++) {
+                clears[c] = Arrays.copyOf(clears[c], capacity);
+            }
+        }
+        playerIds[size] = playerId;
+        return size++;
+    }
+
+    /**
+     * Records a finished game. Returns without waiting for the disk.
+     * @param player Player name
+     * @param stats Counters of the finished game
+     * @param score Final score
+     * @param lineCount Lines cleared
+     * @param level Level reached
+     */
+    public synchronized void record(String player, SessionStats stats, int score, int lineCount, int level) {
+        String name = MappedScoreTable.fitName(player);
+        int index = addColumns(playerId(name));
+        endedAt[index] = System.currentTimeMillis();
+        durationMillis[index] = (int) Math.min(Integer.MAX_VALUE, stats.getDurationMillis());
+        scores[index] = score;
+        lines[index] = lineCount;
+        levels[index] = level;
+        pieces[index] = stats.getPiecesPlaced();
+        inputs[index] = stats.getInputs();
+        holds[index] = stats.getHolds();
+        maxStackHeights[index] = stats.getMaxStackHeight();
+        for (int c = 0; c < 4; c++) {
+            clears[c][index] = stats.getClears(c + 1);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(ENDED_AT_OFFSET, endedAt[index])
+              .putInt(DURATION_OFFSET, durationMillis[index])
+              .putInt(SCORE_OFFSET, score)
+              .putInt(LINES_OFFSET, lineCount)
+              .putInt(LEVEL_OFFSET, level)
+              .putInt(PIECES_OFFSET, pieces[index])
+              .putInt(INPUTS_OFFSET, inputs[index])
+              .putInt(HOLDS_OFFSET, holds[index])
+              .putInt(MAX_STACK_OFFSET, maxStackHeights[index]);
+        for (int c = 0; c < 4; c++) {
+            record.putInt(CLEARS_OFFSET + c * 4, clears[c][index]);
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        record.put(NAME_LENGTH_OFFSET, (byte) nameBytes.length);
+        record.put(NAME_OFFSET, nameBytes);
+
+        pendingRecords.add(record);
+        if (!writeScheduled) {
+            writeScheduled = true;
+            writer.execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        while (true) {
+            ByteBuffer[] batch;
+            synchronized (this) {
+                if (pendingRecords.isEmpty()) {
+                    writeScheduled = false;
+                    return;
+                }
+                batch = pendingRecords.toArray(new ByteBuffer[0]);
+                pendingRecords.clear();
+            }
+
+            try {
+                FileChannel out = openForAppend();
+                for (ByteBuffer record : batch) {
+                    while (record.hasRemaining()) {
+                        out.write(record);
+                    }
+                }
+                out.force(false);
+            } catch (IOException e) {
+                System.err.println("Error saving session stats: " + e.getMessage());
+            }
+        }
+    }
+
+    private FileChannel openForAppend() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        long length = channel.size();
+        if (length < HEADER_BYTES) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(RECORD_BYTES).rewind();
+            channel.truncate(0);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            length = HEADER_BYTES;
+        }
+
+        // Drop a record torn by a crash so later records stay aligned
+        long aligned = length - (length - HEADER_BYTES) % RECORD_BYTES;
+        if (aligned < channel.size()) {
+            channel.truncate(aligned);
+        }
+        channel.position(aligned);
+        return channel;
+    }
+
+    /**
+     * Waits for any pending write to reach the disk
+     */
+    public void flush() {
+        writer.flush();
+    }
+
+    /**
+     * Gets the names of every player with recorded sessions
+     * @return Player names in order of first game
+     */
+    public synchronized List<String> getPlayers() {
+        return new ArrayList<>(playerNames);
+    }
+
+    /**
+     * Gets the number of recorded sessions
+     * @return Total sessions of all players
+     */
+    public synchronized int getSessionCount() {
+        return size;
+    }
+
+    /**
+     * Aggregates the sessions of a player
+     * @param player Player name, or null for every player
+     * @return The summary, or null if there are no matching sessions
+     */
+    public synchronized Summary getSummary(String player) {
+        int playerId = -1;
+        if (player != null) {
+            Integer id = playerIdsByName.get(MappedScoreTable.fitName(player));
+            if (id == null) {
+                return null;
+            }
+            playerId = id;
+        }
+
+        int[] matchingScores = new int[size];
+        double[] matchingRates = new double[size];
+        int games = 0;
+        long totalScore = 0;
+        long totalPieces = 0;
+        long totalInputs = 0;
+        long totalHolds = 0;
+        long totalMillis = 0;
+        long totalMaxStack = 0;
+        int[] totalClears = new int[4];
+
+        for (int i = 0; i < size; i++) {
+            if (playerId >= 0 && playerIds[i] != playerId) continue;
+
+            matchingScores[games] = scores[i];
+            matchingRates[games] = durationMillis[i] == 0 ? 0 : pieces[i] * 1000.0 / durationMillis[i];
+            games++;
+            totalScore += scores[i];
+            totalPieces += pieces[i];
+            totalInputs += inputs[i];
+            totalHolds += holds[i];
+            totalMillis += durationMillis[i];
+            totalMaxStack += maxStackHeights[i];
+            for (int c = 0; c < 4; c++) {
+                totalClears[c] += clears[c][i];
+            }
+        }
+        if (games == 0) {
+            return null;
+        }
+
+        Arrays.sort(matchingScores, 0, games);
+        Arrays.sort(matchingRates, 0, games);
+        double averageRate = 0;
+        for (int i = 0; i < games; i++) {
+            averageRate += matchingRates[i];
+        }
+
+        return new Summary(
+            games,
+            (double) totalScore / games,
+            averageRate / games,
+            totalPieces == 0 ? 0 : (double) totalInputs / totalPieces,
+            totalMillis / 1000.0 / games,
+            (double) totalMaxStack / games,
+            totalPieces == 0 ? 0 : (double) totalHolds / totalPieces,
+            totalClears,
+            matchingScores[percentileIndex(games, 50)],
+            matchingScores[percentileIndex(games, 90)],
+            matchingRates[percentileIndex(games, 50)],
+            matchingRates[percentileIndex(games, 90)]
+        );
+    }
+
+    // Nearest-rank percentile position in a sorted array
+    private static int percentileIndex(int count, int percentile) {
+        return Math.max(0, (int) Math.ceil(percentile / 100.0 * count) - 1);
+    }
+}
@@ -0,0 +1,226 @@
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a game on a virtual clock instead of the wall clock, for tests and
+ * bot training.
+ * Gravity follows the same schedule as the game threads: a tick when the
+ * game starts, then one every TetrisEngine.getGravityDelay of the current
+ * level. Inputs come from an InputScript at virtual times and use the same
+ * actions as the keyboard controls, so a game with the same seed and inputs
+ * ends the same way as in real time.
+ * With a time scale of 0 the game runs as fast as the engine allows. While
+ * no input is due before the falling piece lands, the piece is dropped and
+ * locked in one step at the time gravity would have locked it, so a game
+ * costs about one engine call per piece and input. A positive time scale
+ * paces the game against the wall clock, 100 plays a hundred times faster
+ * than real time. Frames are reported to an optional listener at most once
+ * per frame interval of virtual time.
+ * Not thread safe, run each simulation on one thread.
+ */
+public class Simulation {
+    /**
+     * Supplies the inputs of a simulated game
+     */
+    public interface InputScript {
+        /**
+         * Gets the virtual time of the next input. Called again after every
+         * input and engine step, so the answer may depend on the engine.
+         * @param engine The simulated game
+         * @param now The current virtual time in milliseconds
+         * @return Time of the next input, at least now, or Long.MAX_VALUE for none
+         */
+        long nextInputTime(TetrisEngine engine, long now);
+
+        /**
+         * Takes the input that is due
+         * @param engine The simulated game
+         * @return One of the TetrisEngine action constants
+         */
+        int takeInput(TetrisEngine engine);
+    }
+
+    /**
+     * Receives the simulated game at a decimated frame rate
+     */
+    public interface FrameListener {
+        /**
+         * @param engine The simulated game, only valid during the call
+         * @param now The current virtual time in milliseconds
+         */
+        void frame(TetrisEngine engine, long now);
+    }
+
+    /**
+     * How a simulated game ended
+     */
+    public static final class Result {
+        public final int score;
+        public final int lines;
+        public final int level;
+        public final int pieces;
+        public final long virtualMillis;
+        public final boolean gameOver;
+
+        Result(int score, int lines, int level, int pieces, long virtualMillis, boolean gameOver) {
+            this.score = score;
+            this.lines = lines;
+            this.level = level;
+            this.pieces = pieces;
+            this.virtualMillis = virtualMillis;
+            this.gameOver = gameOver;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("score=%d lines=%d level=%d pieces=%d time=%dms%s",
+                score, lines, level, pieces, virtualMillis, gameOver ? " game over" : "");
+        }
+    }
+
+    /** Script without any inputs, pieces just fall */
+    public static final InputScript NO_INPUT = new InputScript() {
+        @Override
+        public long nextInputTime(TetrisEngine engine, long now) {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int takeInput(TetrisEngine engine) {
+            return 0;
+        }
+    };
+
+    private final TetrisEngine engine;
+    private InputScript script = NO_INPUT;
+    private double timeScale = 0;
+    private FrameListener frameListener;
+    private long frameMillis = 16;
+    private long maxMillis = Long.MAX_VALUE;
+    private int maxPieces = Integer.MAX_VALUE;
+
+    /**
+     * Constructor for a simulation on a standard 10 x 20 board
+     * @param seed Seed of the piece sequence
+     */
+    public Simulation(long seed) {
+        this(10, 20, seed);
+    }
+
+    /**
+     * Constructor for a simulation
+     * @param width Width of the board in blocks
+     * @param height Height of the board in blocks
+     * @param seed Seed of the piece sequence
+     */
+    public Simulation(int width, int height, long seed) {
+        this.engine = new TetrisEngine(width, height, new Random(seed));
+    }
+
+    /**
+     * Gets the simulated engine, for example to set a listener
+     * @return The engine
+     */
+    public TetrisEngine getEngine() {
+        return engine;
+    }
+
+    public Simulation setInputScript(InputScript script) {
+        this.script = script != null ? script : NO_INPUT;
+        return this;
+    }
+
+    /**
+     * Sets how fast the game runs compared to real time
+     * @param timeScale 0 to run uncapped, otherwise virtual time per wall clock time
+     * @return This simulation
+     */
+    public Simulation setTimeScale(double timeScale) {
+        if (timeScale < 0) {
+            throw new IllegalArgumentException("Time scale must not be negative: " + timeScale);
+        }
+        this.timeScale = timeScale;
+        return this;
+    }
+
+    /**
+     * Reports frames to a listener, at most once per interval of virtual time
+     * @param listener The listener, null to skip rendering
+     * @param frameMillis Virtual milliseconds between frames
+     * @return This simulation
+     */
+    public Simulation setFrameListener(FrameListener listener, long frameMillis) {
+        this.frameListener = listener;
+        this.frameMillis = Math.max(1, frameMillis);
+        return this;
+    }
+
+    /**
+     * Stops the game after a virtual time or number of pieces, whichever comes first
+     * @param maxMillis Virtual milliseconds
+     * @param maxPieces Locked pieces
+     * @return This simulation
+     */
+    public Simulation setLimits(long maxMillis, int maxPieces) {
+        this.maxMillis = maxMillis;
+        this.maxPieces = maxPieces;
+        return this;
+    }
+
+    /**
+     * Plays a new game until it is over or a limit is reached
+     * @return The final totals
+     */
+    public Result run() {
+        engine.reset();
+        long startNanos = System.nanoTime();
+        long now = 0;
+        long nextGravity = 0;
+        long nextFrame = 0;
+
+        while (!engine.isGameOver() && now < maxMillis && engine.getPiecesLocked() < maxPieces) {
+            long nextInput = script.nextInputTime(engine, now);
+            if (nextInput <= nextGravity) {
+                // Inputs due at the same time as gravity go first, like a keypress handled before the tick
+                now = Math.max(now, nextInput);
+                engine.apply(script.takeInput(engine));
+            } else {
+                int delay = TetrisEngine.getGravityDelay(engine.getLevel());
+                int distance = engine.getCurrentPiece() != null ? engine.getDropDistance() : 0;
+                // Ticks at nextGravity + k * delay move the piece down, the one after the last move locks it
+                long lockTime = nextGravity + (long) distance * delay;
+                if (distance > 0 && nextInput > lockTime) {
+                    now = lockTime;
+                    engine.hardDrop();
+                    nextGravity = lockTime + TetrisEngine.getGravityDelay(engine.getLevel());
+                } else {
+                    now = nextGravity;
+                    engine.tick();
+                    nextGravity = now + TetrisEngine.getGravityDelay(engine.getLevel());
+                }
+            }
+
+            if (frameListener != null && now >= nextFrame) {
+                frameListener.frame(engine, now);
+                nextFrame = now + frameMillis;
+            }
+            if (timeScale > 0) {
+                pace(startNanos, now);
+            }
+        }
+
+        return new Result(engine.getScore(), engine.getLines(), engine.getLevel(),
+            engine.getPiecesLocked(), now, engine.isGameOver());
+    }
+
+    /**
+     * Waits until the wall clock catches up with the scaled virtual time
+     */
+    private void pace(long startNanos, long now) {
+        long dueNanos = startNanos + (long) (now * 1_000_000L / timeScale);
+        long wait;
+        while ((wait = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
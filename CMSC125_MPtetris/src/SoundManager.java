@@ -1,180 +1,162 @@
-import javax.sound.sampled.*;
-import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class SoundManager {
-    private Clip backgroundMusic;
-    private Clip menuMusic;
-    private Map<String, Clip> soundEffects;
+    // Sound effects and how many numbered variations of each exist
+    private static final String[] EFFECT_NAMES = {"drop", "rotate", "clear", "levelup", "gameover"};
+    private static final int[] EFFECT_VARIATIONS = {3, 2, 4, 1, 1};
+    private static final int DROP = 0;
+    private static final int ROTATE = 1;
+    private static final int CLEAR = 2;
+    private static final int LEVEL_UP = 3;
+    private static final int GAME_OVER = 4;
+
+    // File names of every variation, built once so playing a sound does not allocate.
+    // A variation's index in this table is its id in telemetry.
+    private static final String[] EFFECT_FILES;
+    // Index of each effect's first variation in EFFECT_FILES
+    private static final int[] EFFECT_FIRST = new int[EFFECT_NAMES.length];
+
+    static {
+        int total = 0;
+        for (int i = 0; i < EFFECT_NAMES.length; i++) {
+            EFFECT_FIRST[i] = total;
+            total += EFFECT_VARIATIONS[i];
+        }
+        EFFECT_FILES = new String[total];
+        for (int i = 0; i < EFFECT_NAMES.length; i++) {
+            for (int variation = 0; variation < EFFECT_VARIATIONS[i]; variation++) {
+                EFFECT_FILES[EFFECT_FIRST[i] + variation] = EFFECT_NAMES[i] + (variation + 1);
+            }
+        }
+    }
+
+    private MusicStreamer backgroundMusic;
+    private MusicStreamer menuMusic;
+    private AudioMixer effectsMixer;
     private float masterVolume = 0.8f;
     private float menuVolume = 0.9f;
     private boolean isMultiplayer;
-    private FloatControl musicVolumeControl;
-    private FloatControl menuVolumeControl;
+    private String backgroundTrack;
 
     public SoundManager(boolean isMultiplayer) {
         this.isMultiplayer = isMultiplayer;
-        this.soundEffects = new HashMap<>();
-        loadSounds();
-    }
-
-    private void loadSounds() {
-        try {
-            // Load background music (randomly choose between bg.wav and bg2.wav)
-            String bgMusic = Math.random() < 0.5 ? "bg.wav" : "bg2.wav";
-            URL musicURL = getClass().getResource("/sounds/" + bgMusic);
-            if (musicURL != null) {
-                backgroundMusic = AudioSystem.getClip();
-                AudioInputStream stream = AudioSystem.getAudioInputStream(musicURL);
-                backgroundMusic.open(stream);
-                
-                // Get volume control
-                if (backgroundMusic.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                    musicVolumeControl = (FloatControl) backgroundMusic.getControl(FloatControl.Type.MASTER_GAIN);
-                    setMusicVolume(masterVolume);
-                }
-            }
+        this.effectsMixer = AudioAssetCache.acquire();
 
-            // Load menu music
-            URL menuURL = getClass().getResource("/sounds/menu.wav");
-            if (menuURL != null) {
-                menuMusic = AudioSystem.getClip();
-                AudioInputStream stream = AudioSystem.getAudioInputStream(menuURL);
-                menuMusic.open(stream);
-                
-                // Get volume control for menu music
-                if (menuMusic.isControlSupported(FloatControl.Type.MASTER_GAIN)) {
-                    menuVolumeControl = (FloatControl) menuMusic.getControl(FloatControl.Type.MASTER_GAIN);
-                    setMenuVolume(menuVolume);
-                }
-            }
+        // Effects are decoded in the background, sounds triggered before then are skipped
+        AssetLoader.start();
 
-            // Load sound effects with variations
-            loadSoundEffect("drop", 3);   // 3 variations for piece drops
-            loadSoundEffect("rotate", 2);  // 2 variations for rotation
-            loadSoundEffect("clear", 4);   // 4 variations for line clears
-            loadSoundEffect("levelup", 1); // 1 level up sound
-            loadSoundEffect("gameover", 1); // 1 game over sound
+        // Background music is randomly chosen between bg.wav and bg2.wav, streamed when played
+        backgroundTrack = Math.random() < 0.5 ? "bg.wav" : "bg2.wav";
+    }
 
-        } catch (Exception e) {
-            System.err.println("Error loading sounds: " + e.getMessage());
+    /**
+     * Starts decoding every sound effect variation in parallel
+     * @param executor Executor to decode on
+     * @return Future completing when all effects are decoded
+     */
+    public static CompletableFuture<Void> preloadEffects(Executor executor) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[EFFECT_FILES.length];
+        for (int id = 0; id < EFFECT_FILES.length; id++) {
+            loads[id] = AudioAssetCache.loadEffectAsync(EFFECT_FILES[id], executor);
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    /**
+     * Starts streaming a music track through the shared mixer from the beginning
+     * @param fileName Music file name
+     * @param volume Linear volume between 0 and 1
+     * @return The started streamer, or null if the track is missing or audio is unavailable
+     */
+    private MusicStreamer startMusic(String fileName, float volume) {
+        URL musicURL = getClass().getResource("/sounds/" + fileName);
+        if (musicURL == null || effectsMixer == null || !effectsMixer.isRunning()) {
+            return null;
         }
+        MusicStreamer streamer = new MusicStreamer(musicURL);
+        streamer.start();
+        effectsMixer.setMusic(streamer, volume);
+        return streamer;
     }
 
-    private void loadSoundEffect(String name, int variations) {
-        try {
-            for (int i = 1; i <= variations; i++) {
-                URL effectURL = getClass().getResource("/sounds/" + name + i + ".wav");
-                if (effectURL != null) {
-                    Clip clip = AudioSystem.getClip();
-                    AudioInputStream stream = AudioSystem.getAudioInputStream(effectURL);
-                    clip.open(stream);
-                    soundEffects.put(name + i, clip);
-                }
+    private void stopMusic(MusicStreamer streamer) {
+        if (streamer != null) {
+            streamer.stop();
+            if (effectsMixer != null) {
+                effectsMixer.clearMusic(streamer);
             }
-        } catch (Exception e) {
-            System.err.println("Error loading sound effect " + name + ": " + e.getMessage());
         }
     }
 
     public void playBackgroundMusic() {
-        if (backgroundMusic != null) {
-            backgroundMusic.setFramePosition(0);
-            backgroundMusic.loop(Clip.LOOP_CONTINUOUSLY);
-            updateMusicVolume();
-        }
+        stopMusic(backgroundMusic);
+        backgroundMusic = startMusic(backgroundTrack, masterVolume);
     }
 
     public void stopBackgroundMusic() {
-        if (backgroundMusic != null) {
-            backgroundMusic.stop();
-        }
-    }
-
-    private void updateMusicVolume() {
-        if (musicVolumeControl != null) {
-            setMusicVolume(masterVolume);
-        }
-    }
-
-    private void setMusicVolume(float volume) {
-        if (musicVolumeControl != null) {
-            float min = musicVolumeControl.getMinimum();
-            float max = musicVolumeControl.getMaximum();
-            float range = max - min;
-            float adjustedVolume = min + (range * volume);
-            musicVolumeControl.setValue(adjustedVolume);
-        }
+        stopMusic(backgroundMusic);
+        backgroundMusic = null;
     }
 
     public void playMenuMusic() {
-        if (menuMusic != null) {
-            menuMusic.setFramePosition(0);
-            menuMusic.loop(Clip.LOOP_CONTINUOUSLY);
-            setMenuVolume(menuVolume);
-        }
+        stopMusic(menuMusic);
+        menuMusic = startMusic("menu.wav", menuVolume);
     }
 
     public void stopMenuMusic() {
-        if (menuMusic != null) {
-            menuMusic.stop();
-        }
-    }
-
-    private void setMenuVolume(float volume) {
-        if (menuVolumeControl != null) {
-            float min = menuVolumeControl.getMinimum();
-            float max = menuVolumeControl.getMaximum();
-            float range = max - min;
-            float adjustedVolume = min + (range * volume);
-            menuVolumeControl.setValue(adjustedVolume);
-        }
+        stopMusic(menuMusic);
+        menuMusic = null;
     }
 
     public void playPieceDropSound() {
-        playRandomVariation("drop", 3);
+        playRandomVariation(DROP);
     }
 
     public void playRotateSound() {
-        playRandomVariation("rotate", 2);
+        playRandomVariation(ROTATE);
     }
 
     public void playLineClearSound() {
-        playRandomVariation("clear", 4);
+        playRandomVariation(CLEAR);
     }
 
     public void playLevelUpSound() {
-        playSound("levelup1");
+        playRandomVariation(LEVEL_UP);
     }
 
     public void playGameOverSound() {
-        playSound("gameover1");
+        playRandomVariation(GAME_OVER);
     }
 
-    private void playRandomVariation(String baseName, int variations) {
-        int variation = (int)(Math.random() * variations) + 1;
-        playSound(baseName + variation);
+    private void playRandomVariation(int effect) {
+        int variation = (int)(Math.random() * EFFECT_VARIATIONS[effect]);
+        playSound(EFFECT_FIRST[effect] + variation);
     }
 
-    private void playSound(String name) {
-        Clip clip = soundEffects.get(name);
-        if (clip != null) {
-            clip.setFramePosition(0);
-            clip.start();
+    private void playSound(int id) {
+        String name = EFFECT_FILES[id];
+        TetrisEvents.SoundTrigger soundEvent = new TetrisEvents.SoundTrigger();
+        soundEvent.begin();
+
+        boolean played = effectsMixer != null && effectsMixer.play(AudioAssetCache.getLoadedEffect(name), 1.0f);
+        Telemetry.record(Telemetry.SOUND, 0, Telemetry.pack(played ? 1 : 0, id));
+
+        if (soundEvent.shouldCommit()) {
+            soundEvent.sound = name;
+            soundEvent.played = played;
+            soundEvent.commit();
         }
     }
 
     public void cleanup() {
-        if (backgroundMusic != null) {
-            backgroundMusic.close();
-        }
-        if (menuMusic != null) {
-            menuMusic.close();
-        }
-        for (Clip clip : soundEffects.values()) {
-            if (clip != null) clip.close();
+        stopBackgroundMusic();
+        stopMenuMusic();
+        if (effectsMixer != null) {
+            // The decoded audio stays cached, only this manager's mixer reference is released
+            AudioAssetCache.release();
+            effectsMixer = null;
         }
     }
 } 
\ No newline at end of file
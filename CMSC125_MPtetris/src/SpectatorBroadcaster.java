@@ -0,0 +1,532 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets read-only viewers, such as lobby screens, watch the local game.
+ * Each board of the running game has a Feed that turns its changes into
+ * BoardSync frames. Game threads hand frames over through a preallocated
+ * lock-free ring, the same way Telemetry records events, so publishing never
+ * waits on the network: when the ring is full the frame is dropped and the
+ * feed sends a keyframe next. One thread accepts viewers on a Selector and
+ * copies every frame into each viewer's own buffer. A viewer whose buffer is
+ * full skips frames until it has drained and then gets keyframes, so a slow
+ * screen shows fewer updates instead of delaying the rest, and one that stays
+ * full for several seconds is disconnected. Keyframes for new, lagging or
+ * resyncing viewers come from mirror boards kept by this thread, not from the
+ * game. Viewers speak the MatchClient protocol and are greeted with
+ * SPECTATE_START. Broadcasting is off unless the game is started with
+ * -Dtetris.spectators=true, and it only listens on the loopback interface
+ * unless -Dtetris.spectatorAddress names an address to bind, for example
+ * 0.0.0.0 for every interface.
+ */
+public final class SpectatorBroadcaster implements Runnable {
+    public static final int DEFAULT_PORT = 7778;
+
+    private static final boolean ENABLED = Boolean.getBoolean("tetris.spectators");
+    private static final int PORT = Integer.getInteger("tetris.spectatorPort", DEFAULT_PORT);
+    // Address to listen on, null for loopback only
+    private static final String ADDRESS = System.getProperty("tetris.spectatorAddress");
+
+    // Frames waiting for the broadcast thread, each slot holds one frame
+    private static final int CAPACITY = 1 << 10;
+    private static final int MASK = CAPACITY - 1;
+    private static final int SLOT_BYTES = 256;
+    private static final VarHandle MARKERS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int INPUT_BUFFER_BYTES = 16;
+    // Several seconds of play, a viewer this far behind is not keeping up
+    private static final int OUTPUT_BUFFER_BYTES = 8192;
+    // A lagging viewer resumes once its buffer has drained to this
+    private static final int RESUME_BYTES = OUTPUT_BUFFER_BYTES / 4;
+    // Keeps the kernel from buffering megabytes for each stalled viewer
+    private static final int SOCKET_BUFFER_BYTES = 32 * 1024;
+    private static final long DROP_AFTER_NANOS = 5_000_000_000L;
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private static SpectatorBroadcaster instance;
+    private static boolean startFailed = false;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+
+    // Frame ring, see offer and drainFrames
+    private final byte[] frames = new byte[CAPACITY * SLOT_BYTES];
+    private final long[] markers = new long[CAPACITY];
+    private final long[] frameInfo = new long[CAPACITY];
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail = 0;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+    private volatile Session session;
+
+    // Only used by the broadcast thread
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final List<Viewer> lagging = new ArrayList<>();
+    private final List<Viewer> pendingFlush = new ArrayList<>();
+    private Session activeSession;
+    private TetrisEngine[] mirrors = new TetrisEngine[0];
+    private BoardSync.Decoder[] decoders = new BoardSync.Decoder[0];
+    private ByteBuffer[] keyframes = new ByteBuffer[0];
+    private boolean[] keyframeValid = new boolean[0];
+    private final ByteBuffer frameView = ByteBuffer.wrap(frames);
+
+    /**
+     * The boards of one game
+     */
+    private static class Session {
+        final int id;
+        final Feed[] feeds;
+
+        Session(int id, Feed[] feeds) {
+            this.id = id;
+            this.feeds = feeds;
+        }
+    }
+
+    /**
+     * One connected viewer
+     */
+    private static class Viewer {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer input = ByteBuffer.allocateDirect(INPUT_BUFFER_BYTES);
+        final ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+        // Game the viewer was last told about
+        int sessionId = 0;
+        boolean lagging = false;
+        long laggingSince;
+        boolean closed = false;
+
+        Viewer(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Publishes one board. The owner forwards the engine's lock and reset
+     * events and calls publish after every change, on whichever thread made it.
+     */
+    public static final class Feed implements TetrisEngine.Listener {
+        private final SpectatorBroadcaster broadcaster;
+        private final int sessionId;
+        private final BoardSync.Encoder encoder;
+        private volatile boolean keyframeRequested = false;
+
+        private Feed(SpectatorBroadcaster broadcaster, int sessionId, TetrisEngine engine, int board) {
+            this.broadcaster = broadcaster;
+            this.sessionId = sessionId;
+            this.encoder = new BoardSync.Encoder(engine, board);
+        }
+
+        @Override
+        public synchronized void pieceLocked(Tetromino piece, int x, int y, int linesCleared, int stackHeight) {
+            encoder.pieceLocked(piece, x, y, linesCleared, stackHeight);
+        }
+
+        @Override
+        public synchronized void boardReset() {
+            encoder.boardReset();
+        }
+
+        /**
+         * Sends the board's changes since the last call to every viewer.
+         * Never blocks, call it with the engine's lock held.
+         */
+        public synchronized void publish() {
+            if (keyframeRequested) {
+                keyframeRequested = false;
+                encoder.requestKeyframe();
+            }
+            ByteBuffer frame = encoder.encode();
+            if (frame != null && !broadcaster.offer(sessionId, frame)) {
+                // The viewers missed this frame, start over from a keyframe
+                keyframeRequested = true;
+            }
+        }
+    }
+
+    /**
+     * Gets the broadcaster of this process, starting it on first use
+     * @return The broadcaster, or null if spectating is off or the socket cannot be opened
+     */
+    public static synchronized SpectatorBroadcaster getInstance() {
+        if (instance == null && ENABLED && !startFailed) {
+            try {
+                InetAddress address = ADDRESS != null ? InetAddress.getByName(ADDRESS) : InetAddress.getLoopbackAddress();
+                instance = new SpectatorBroadcaster(address, PORT);
+                Thread thread = new Thread(instance, "Tetris-Spectators");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                System.err.println("Error starting spectator broadcast: " + e.getMessage());
+                startFailed = true;
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Opens the listening socket on the loopback interface
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException If the socket cannot be opened
+     */
+    public SpectatorBroadcaster(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Opens the listening socket
+     * @param address Address to listen on
+     * @param port Port to listen on, 0 for any free port
+     * @throws IOException If the socket cannot be opened
+     */
+    public SpectatorBroadcaster(InetAddress address, int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(address, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Starts broadcasting a new game, replacing the previous one
+     * @param engines The game's boards in player order, each of NetProtocol's board size
+     * @return One feed per board
+     */
+    public synchronized Feed[] startSession(TetrisEngine... engines) {
+        int id = session == null ? 1 : session.id + 1;
+        Feed[] feeds = new Feed[engines.length];
+        for (int i = 0; i < engines.length; i++) {
+            if (engines[i].getWidth() != NetProtocol.BOARD_WIDTH
+                    || engines[i].getHeight() != NetProtocol.BOARD_HEIGHT) {
+                throw new IllegalArgumentException("Viewers only show standard size boards");
+            }
+            feeds[i] = new Feed(this, id, engines[i], i);
+        }
+        session = new Session(id, feeds);
+        wakeup();
+        return feeds;
+    }
+
+    /**
+     * Hands a frame to the broadcast thread. Safe to call from any thread,
+     * never blocks or allocates.
+     * @return false if the ring was full and the frame was dropped
+     */
+    private boolean offer(int sessionId, ByteBuffer frame) {
+        long claim;
+        do {
+            claim = head.get();
+            if (claim - tail >= CAPACITY) {
+                return false;
+            }
+        } while (!head.compareAndSet(claim, claim + 1));
+
+        int slot = (int) (claim & MASK);
+        int length = frame.remaining();
+        frame.get(frame.position(), frames, slot * SLOT_BYTES, length);
+        frameInfo[slot] = (long) sessionId << 32 | length;
+        // Publishing the marker last makes the frame visible to the broadcast thread
+        MARKERS.setRelease(markers, slot, claim + 1);
+        wakeup();
+        return true;
+    }
+
+    private void wakeup() {
+        // One wakeup per batch, the broadcast thread clears the flag before draining
+        if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                wakeupPending.set(false);
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Viewer viewer = (Viewer) key.attachment();
+                        if (key.isReadable()) {
+                            read(viewer);
+                        }
+                        if (!viewer.closed && key.isValid() && key.isWritable()) {
+                            flush(viewer);
+                        }
+                    }
+                }
+
+                if (session != activeSession) {
+                    switchSession(session);
+                }
+                drainFrames();
+                resumeLagging();
+
+                for (Viewer viewer : pendingFlush) {
+                    flush(viewer);
+                }
+                pendingFlush.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator broadcast stopped: " + e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER_BYTES);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Viewer viewer = new Viewer(channel, key);
+            key.attach(viewer);
+            viewers.add(viewer);
+            if (activeSession != null) {
+                greet(viewer);
+            }
+        }
+    }
+
+    private void read(Viewer viewer) {
+        int read;
+        try {
+            read = viewer.channel.read(viewer.input);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            close(viewer);
+            return;
+        }
+
+        // Viewers only ever ask for keyframes, anything else is ignored
+        ByteBuffer input = viewer.input;
+        input.flip();
+        boolean resync = false;
+        while (input.remaining() >= NetProtocol.CLIENT_MESSAGE_BYTES) {
+            resync |= input.get() == NetProtocol.RESYNC;
+            input.position(input.position() + NetProtocol.CLIENT_MESSAGE_BYTES - 1);
+        }
+        input.compact();
+        if (resync && !viewer.lagging) {
+            sendKeyframes(viewer);
+        }
+    }
+
+    private void switchSession(Session next) {
+        activeSession = next;
+        int boards = next.feeds.length;
+        mirrors = new TetrisEngine[boards];
+        decoders = new BoardSync.Decoder[boards];
+        keyframes = new ByteBuffer[boards];
+        keyframeValid = new boolean[boards];
+        for (int i = 0; i < boards; i++) {
+            mirrors[i] = new TetrisEngine(NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT, new Random());
+            decoders[i] = new BoardSync.Decoder(NetProtocol.BOARD_WIDTH, NetProtocol.BOARD_HEIGHT);
+            keyframes[i] = ByteBuffer.allocate(NetProtocol.KEYFRAME_BYTES);
+        }
+        for (Viewer viewer : viewers) {
+            greet(viewer);
+        }
+    }
+
+    private void greet(Viewer viewer) {
+        ByteBuffer output = reserve(viewer, NetProtocol.SHORT_MESSAGE_BYTES);
+        if (output != null) {
+            NetProtocol.putShortMessage(output, NetProtocol.SPECTATE_START, mirrors.length, activeSession.id);
+            viewer.sessionId = activeSession.id;
+            sendKeyframes(viewer);
+        }
+    }
+
+    /**
+     * Moves every published frame from the ring to the mirrors and viewers
+     */
+    private void drainFrames() {
+        long position = tail;
+        while (true) {
+            int slot = (int) (position & MASK);
+            if ((long) MARKERS.getAcquire(markers, slot) != position + 1) {
+                // Not yet published, or nothing left
+                break;
+            }
+            int sessionId = (int) (frameInfo[slot] >>> 32);
+            int length = (int) frameInfo[slot];
+            Session current = session;
+            if (sessionId == current.id && current != activeSession) {
+                // The game restarted after this loop began
+                switchSession(current);
+            }
+            if (sessionId == activeSession.id) {
+                broadcast(slot * SLOT_BYTES, length);
+            }
+            position++;
+            // Free each slot as soon as it is copied so game threads rarely find the ring full
+            tail = position;
+        }
+    }
+
+    private void broadcast(int offset, int length) {
+        int board = frames[offset + 1];
+        if (board < 0 || board >= mirrors.length) return;
+
+        frameView.limit(offset + length).position(offset);
+        boolean applied = true;
+        if (frames[offset] == NetProtocol.KEYFRAME) {
+            decoders[board].applyKeyframe(frameView, mirrors[board]);
+        } else {
+            applied = decoders[board].applyDelta(frameView, mirrors[board]);
+        }
+        keyframeValid[board] = false;
+        if (!applied) {
+            // Only the game can put the mirror right again
+            activeSession.feeds[board].keyframeRequested = true;
+        }
+
+        for (Viewer viewer : viewers) {
+            if (viewer.lagging) continue;
+            ByteBuffer output = reserve(viewer, length);
+            if (output != null) {
+                output.put(frames, offset, length);
+            }
+        }
+    }
+
+    private void resumeLagging() {
+        long now = System.nanoTime();
+        Iterator<Viewer> iterator = lagging.iterator();
+        while (iterator.hasNext()) {
+            Viewer viewer = iterator.next();
+            if (viewer.closed) {
+                iterator.remove();
+            } else if (viewer.output.position() <= RESUME_BYTES) {
+                iterator.remove();
+                viewer.lagging = false;
+                if (viewer.sessionId != activeSession.id) {
+                    // A new game started while the viewer was behind
+                    greet(viewer);
+                } else {
+                    sendKeyframes(viewer);
+                }
+            } else if (now - viewer.laggingSince > DROP_AFTER_NANOS) {
+                // Not reading at all
+                iterator.remove();
+                close(viewer);
+            }
+        }
+    }
+
+    /**
+     * Brings a viewer up to date with the current state of every board
+     */
+    private void sendKeyframes(Viewer viewer) {
+        for (int board = 0; board < mirrors.length; board++) {
+            if (!decoders[board].isSynced()) {
+                // The viewer catches up with the keyframe the game sends next
+                continue;
+            }
+            ByteBuffer keyframe = keyframes[board];
+            if (!keyframeValid[board]) {
+                BoardSync.putKeyframe(keyframe, mirrors[board], board, decoders[board].getSequence());
+                keyframeValid[board] = true;
+            }
+            ByteBuffer output = reserve(viewer, keyframe.remaining());
+            if (output == null) return;
+            output.put(keyframe.duplicate());
+        }
+    }
+
+    /**
+     * Gets room in a viewer's output buffer
+     * @param viewer The receiver
+     * @param bytes Size of the message to write
+     * @return The buffer to write the message to, or null if the viewer is closed or lagging
+     */
+    private ByteBuffer reserve(Viewer viewer, int bytes) {
+        if (viewer.closed || viewer.lagging) return null;
+        if (viewer.output.remaining() < bytes) {
+            // Skip frames until the viewer catches up instead of buffering without bound
+            viewer.lagging = true;
+            viewer.laggingSince = System.nanoTime();
+            lagging.add(viewer);
+            return null;
+        }
+        if (viewer.output.position() == 0) {
+            pendingFlush.add(viewer);
+        }
+        return viewer.output;
+    }
+
+    private void flush(Viewer viewer) {
+        if (viewer.closed) return;
+
+        ByteBuffer output = viewer.output;
+        output.flip();
+        try {
+            viewer.channel.write(output);
+        } catch (IOException e) {
+            output.compact();
+            close(viewer);
+            return;
+        }
+        output.compact();
+
+        // Wait for the socket to drain before writing the rest
+        int interest = output.position() > 0
+            ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+            : SelectionKey.OP_READ;
+        if (viewer.key.interestOps() != interest) {
+            viewer.key.interestOps(interest);
+        }
+    }
+
+    private void close(Viewer viewer) {
+        if (viewer.closed) return;
+        viewer.closed = true;
+        viewer.key.cancel();
+        try {
+            viewer.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        viewers.remove(viewer);
+    }
+
+    /**
+     * Gets the number of connected viewers. Only exact on the broadcast thread.
+     * @return Viewer count
+     */
+    public int getViewerCount() {
+        return viewers.size();
+    }
+}
@@ -13,13 +13,13 @@ public class StartScreen extends JFrame {
     private static final int WINDOW_WIDTH = 800;
     private static final int WINDOW_HEIGHT = 600;
     private CosmicEffects cosmicEffects;
-    private Timer effectsTimer;
     private float titleGlow = 0;
     private boolean glowIncreasing = true;
     private float fadeInAlpha = 0f;
     private float promptAnim = 0f;
     private boolean promptIncreasing = true;
     private SoundManager soundManager;
+    private boolean menuMusicScheduled = false;
 
     /**
      * Constructor sets up the start screen window and its components
@@ -31,12 +31,8 @@ public class StartScreen extends JFrame {
         setLocationRelativeTo(null);
         setResizable(false);
 
-        // Initialize sound manager
-        soundManager = new SoundManager(false);
-        soundManager.playMenuMusic();
-
         // Initialize cosmic effects
-        cosmicEffects = new CosmicEffects(WINDOW_WIDTH, WINDOW_HEIGHT);
+        cosmicEffects = CosmicEffects.obtain(WINDOW_WIDTH, WINDOW_HEIGHT);
 
         // Create main panel with custom painting
         JPanel mainPanel = new JPanel() {
@@ -55,6 +51,13 @@ public class StartScreen extends JFrame {
 
                 g2d.setComposite(oldComp);
                 g2d.dispose();
+
+                AssetLoader.firstFrameShown();
+                if (!menuMusicScheduled) {
+                    // Audio starts once the screen is up, opening the output line can take a while
+                    menuMusicScheduled = true;
+                    SwingUtilities.invokeLater(StartScreen.this::startMenuMusic);
+                }
             }
         };
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
@@ -99,8 +102,8 @@ public class StartScreen extends JFrame {
         // Add the main panel to the frame
         add(mainPanel);
 
-        // Start animation timer
-        effectsTimer = new Timer(16, e -> {
+        // Animate with the shared frame clock
+        FrameScheduler.register(getRootPane(), () -> {
             cosmicEffects.update();
             updateTitleGlow();
             if (fadeInAlpha < 1f) {
@@ -117,7 +120,6 @@ public class StartScreen extends JFrame {
             }
             mainPanel.repaint();
         });
-        effectsTimer.start();
 
         // Add key bindings
         addKeyBindings(mainPanel);
@@ -232,6 +234,14 @@ public class StartScreen extends JFrame {
         }
     }
 
+    private void startMenuMusic() {
+        if (!isDisplayable() || soundManager != null) {
+            return;
+        }
+        soundManager = new SoundManager(false);
+        soundManager.playMenuMusic();
+    }
+
     private void startGame() {
         cleanup();
         GameModeScreen modeScreen = new GameModeScreen();
@@ -298,7 +308,7 @@ public class StartScreen extends JFrame {
         highScorePanel.add(Box.createRigidArea(new Dimension(0, 30)));
 
         // Get and display scores
-        HighScoreManager highScoreManager = new HighScoreManager();
+        HighScoreManager highScoreManager = AssetLoader.getHighScoreManager();
         List<HighScoreManager.ScoreEntry> scores = highScoreManager.getHighScores();
 
         if (scores.isEmpty()) {
@@ -336,19 +346,15 @@ public class StartScreen extends JFrame {
     }
 
     private void cleanup() {
-        if (effectsTimer != null) {
-            effectsTimer.stop();
-            effectsTimer = null;
-        }
+        FrameScheduler.unregister(getRootPane());
         if (cosmicEffects != null) {
-            cosmicEffects.cleanup();
+            cosmicEffects.release();
             cosmicEffects = null;
         }
         if (soundManager != null) {
             soundManager.stopMenuMusic();
             soundManager.cleanup();
         }
-        System.gc();
     }
 
     /**
@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Always-on structured gameplay telemetry.
+ * Any thread records fixed-size events into a preallocated lock-free ring:
+ * claiming a slot is one compare-and-set, the event is four array stores, and
+ * nothing is allocated. A background thread drains the ring into rolling
+ * binary files under telemetry/. When the ring is full, events are dropped and
+ * counted instead of blocking the game, and the drop count is written as an
+ * event of its own. Start with -Dtetris.telemetry=false to turn it off.
+ */
+public final class Telemetry {
+    // Event types
+    public static final int SPAWN = 1;
+    public static final int MOVE = 2;
+    public static final int ROTATE = 3;
+    public static final int LOCK = 4;
+    public static final int CLEAR = 5;
+    public static final int PAUSE = 6;
+    public static final int GAME_OVER = 7;
+    public static final int SOUND = 8;
+    public static final int HOLD = 9;
+    /** Written by the drain thread, payload is the number of events lost */
+    public static final int DROPPED = 15;
+
+    private static final boolean ENABLED =
+        Boolean.parseBoolean(System.getProperty("tetris.telemetry", "true"));
+
+    // Each slot is four longs: publish marker, nanoTime, type/player/thread, payload
+    private static final int SLOT_LONGS = 4;
+    private static final int CAPACITY = 1 << 15;
+    private static final int MASK = CAPACITY - 1;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final String DIRECTORY = "telemetry";
+    private static final String FILE_PREFIX = "telemetry-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int FILE_MAGIC = 0x54544C4D; // "TTLM"
+    private static final int FORMAT_VERSION = 1;
+    private static final int RECORD_BYTES = 24;
+    private static final int FILE_HEADER_BYTES = 32;
+    private static final long MAX_FILE_BYTES = 4L << 20;
+    private static final int MAX_FILES = 5;
+    private static final long IDLE_PARK_NANOS = 5_000_000;
+
+    private static final long[] ring = new long[CAPACITY * SLOT_LONGS];
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    // Written only by the drain thread
+    private static volatile long tail = 0;
+
+    private static FileChannel file;
+    private static long fileBytes;
+    private static long fileIndex;
+    private static final ByteBuffer output = ByteBuffer.allocateDirect(RECORD_BYTES * 2048);
+
+    static {
+        if (ENABLED) {
+            Thread drainer = new Thread(Telemetry::drainLoop, "Tetris-Telemetry");
+            drainer.setDaemon(true);
+            drainer.setPriority(Thread.MIN_PRIORITY);
+            drainer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(Telemetry::drainOnExit, "Tetris-TelemetryFlush"));
+        }
+    }
+
+    private Telemetry() {
+    }
+
+    /**
+     * Records an event. Safe to call from any thread, never blocks or allocates.
+     * @param type One of the event type constants
+     * @param player 0 in single player, 1 or 2 in two player mode
+     * @param payload Event specific value, see pack
+     */
+    public static void record(int type, int player, long payload) {
+        if (!ENABLED) return;
+
+        long claim;
+        do {
+            claim = head.get();
+            if (claim - tail >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(claim, claim + 1));
+
+        int base = (int) (claim & MASK) * SLOT_LONGS;
+        ring[base + 1] = System.nanoTime();
+        ring[base + 2] = ((long) type << 56) | ((long) (player & 0xFF) << 48)
+            | (Thread.currentThread().getId() & 0xFFFFFFFFFFFFL);
+        ring[base + 3] = payload;
+        // Publishing the marker last makes the other stores visible to the drain thread
+        SLOTS.setRelease(ring, base, claim + 1);
+    }
+
+    /**
+     * Packs two ints into an event payload
+     * @param high Upper 32 bits, for example a piece type or x position
+     * @param low Lower 32 bits, for example a y position or line count
+     * @return The payload
+     */
+    public static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            try {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing telemetry: " + e.getMessage());
+                closeFile();
+                // Back off instead of retrying a failing disk in a tight loop
+                LockSupport.parkNanos(1000 * IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static void drainOnExit() {
+        try {
+            drain();
+            closeFile();
+        } catch (IOException e) {
+            System.err.println("Error writing telemetry: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Moves every published event from the ring to the current file
+     * @return Number of events written
+     */
+    private static synchronized int drain() throws IOException {
+        int drained = 0;
+        long position = tail;
+        output.clear();
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            output.putLong(System.nanoTime()).putLong((long) DROPPED << 56).putLong(lost);
+        }
+
+        while (true) {
+            int base = (int) (position & MASK) * SLOT_LONGS;
+            if ((long) SLOTS.getAcquire(ring, base) != position + 1) {
+                // Not yet published, or nothing left
+                break;
+            }
+            output.putLong(ring[base + 1]).putLong(ring[base + 2]).putLong(ring[base + 3]);
+            position++;
+            drained++;
+
+            if (!output.hasRemaining()) {
+                tail = position;
+                writeOutput();
+            }
+        }
+        tail = position;
+        writeOutput();
+        return drained;
+    }
+
+    private static void writeOutput() throws IOException {
+        output.flip();
+        if (output.hasRemaining()) {
+            if (file == null || fileBytes + output.remaining() > MAX_FILE_BYTES) {
+                rollFile();
+            }
+            fileBytes += output.remaining();
+            while (output.hasRemaining()) {
+                file.write(output);
+            }
+        }
+        output.clear();
+    }
+
+    private static void rollFile() throws IOException {
+        closeFile();
+
+        Path directory = Paths.get(DIRECTORY);
+        Files.createDirectories(directory);
+        List<Long> existing = listFiles(directory);
+        if (fileIndex == 0 && !existing.isEmpty()) {
+            fileIndex = existing.get(existing.size() - 1);
+        }
+        fileIndex++;
+        existing.add(fileIndex);
+
+        // Keep only the newest files
+        for (int i = 0; i < existing.size() - MAX_FILES; i++) {
+            Files.deleteIfExists(directory.resolve(FILE_PREFIX + existing.get(i) + FILE_SUFFIX));
+        }
+
+        file = FileChannel.open(directory.resolve(FILE_PREFIX + fileIndex + FILE_SUFFIX),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // Lets readers convert event nanoTimes to wall clock time
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(FILE_MAGIC).putInt(FORMAT_VERSION).putInt(RECORD_BYTES).putInt(0)
+              .putLong(System.currentTimeMillis()).putLong(System.nanoTime()).flip();
+        while (header.hasRemaining()) {
+            file.write(header);
+        }
+        fileBytes = FILE_HEADER_BYTES;
+    }
+
+    private static List<Long> listFiles(Path directory) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    indexes.add(Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private static void closeFile() {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                // Nothing left to do with a file that cannot be closed
+            }
+            file = null;
+        }
+    }
+}
@@ -1,11 +1,55 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
 /**
  * Main class that launches the Tetris application.
  */
 public class TetrisApp {
+    // Pause between the screens of a class archive training run
+    private static final int TRAINING_STEP_MS = 1500;
+
     public static void main(String[] args) {
-        javax.swing.SwingUtilities.invokeLater(() -> {
+        // Load sounds, high scores and sprites while the start screen comes up
+        AssetLoader.start();
+        SwingUtilities.invokeLater(() -> {
             StartScreen startScreen = new StartScreen();
             startScreen.setVisible(true);
+
+            if (Boolean.getBoolean("tetris.cdsTraining")) {
+                runTrainingSession();
+            }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Opens the mode screen, plays a short single and two player game and
+     * exits, so a run with -XX:ArchiveClassesAtExit archives the classes a
+     * real session loads. See the README for the commands.
+     */
+    private static void runTrainingSession() {
+        Runnable[] steps = {
+            () -> new GameModeScreen().setVisible(true),
+            () -> {
+                TetrisGame game = new TetrisGame();
+                game.setVisible(true);
+                game.startGame();
+            },
+            () -> {
+                TwoPlayerTetrisGame game = new TwoPlayerTetrisGame();
+                game.setVisible(true);
+                game.startGame();
+            },
+            () -> System.exit(0)
+        };
+
+        int[] next = {0};
+        Timer timer = new Timer(TRAINING_STEP_MS, null);
+        timer.addActionListener(e -> {
+            steps[next[0]++].run();
+            if (next[0] == steps.length) {
+                timer.stop();
+            }
+        });
+        timer.start();
+    }
+}
@@ -0,0 +1,561 @@
+import java.util.Random;
+
+/**
+ * The TetrisEngine class holds the rules of one player's game without any
+ * Swing code: the locked blocks, the falling, next and held pieces, movement
+ * with wall kicks, locking, line clears and scoring. GameBoard wraps an engine
+ * for local play, and the match server runs engines headless. Not thread safe,
+ * callers hold their game lock.
+ */
+public class TetrisEngine {
+    /**
+     * Receives rule events as they happen, for effects, sounds and statistics
+     */
+    public interface Listener {
+        /**
+         * A new piece entered the board
+         * @param piece The new falling piece
+         * @param next The piece that will follow it
+         */
+        default void pieceSpawned(Tetromino piece, Tetromino next) { }
+
+        /**
+         * The current piece was held
+         * @param held The piece now in the hold slot
+         */
+        default void pieceHeld(Tetromino held) { }
+
+        /**
+         * A piece was locked into the board, called before the next piece spawns
+         * @param piece The locked piece
+         * @param x Column of the piece's left edge
+         * @param y Row of the piece's top edge
+         * @param linesCleared Lines cleared by the piece
+         * @param stackHeight Stack height after the lines were cleared
+         */
+        default void pieceLocked(Tetromino piece, int x, int y, int linesCleared, int stackHeight) { }
+
+        /**
+         * The board was cleared for a new game, called before the first piece spawns
+         */
+        default void boardReset() { }
+
+        /**
+         * A new piece could not be placed
+         */
+        default void gameOver() { }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() { };
+
+    // Player actions, also the input codes of the network protocol
+    public static final int MOVE_LEFT = 1;
+    public static final int MOVE_RIGHT = 2;
+    public static final int MOVE_DOWN = 3;
+    public static final int ROTATE = 4;
+    public static final int HARD_DROP = 5;
+    public static final int HOLD = 6;
+
+    private final int width;
+    private final int height;
+    private final BoardGrid board;
+    private final Random random;
+    private Listener listener = NO_LISTENER;
+
+    private Tetromino currentPiece;
+    private Tetromino nextPiece;
+    private Tetromino holdPiece;
+    // Clockwise turns applied to the current and held pieces, 0 to 3
+    private int rotation;
+    private int holdRotation;
+    private boolean canHold = true;
+    private int currentX;
+    private int currentY;
+    private boolean gameOver = false;
+
+    private int score = 0;
+    private int lines = 0;
+    private int level = 1;
+    private int lastLinesCleared = 0;
+    // Rows cleared by the last locked piece, top to bottom, the first lastLinesCleared are valid.
+    // A piece spans at most four rows, so it can clear no more.
+    private final int[] lastClearedRows = new int[4];
+    // Changes whenever a different piece becomes the falling piece
+    private int pieceSerial = 0;
+    // Pieces locked since the last reset
+    private int piecesLocked = 0;
+
+    // Drop distance of the current piece, valid while the piece and board are unchanged
+    private int cachedDropDistance = -1;
+    private Tetromino dropCachePiece;
+    private int dropCacheX;
+    private int dropCacheY;
+    private int dropCacheVersion;
+
+    /**
+     * Constructor for an engine with an empty board
+     * @param width Width of the board in blocks
+     * @param height Height of the board in blocks
+     * @param random Source of the piece sequence
+     */
+    public TetrisEngine(int width, int height, Random random) {
+        this.width = width;
+        this.height = height;
+        this.random = random;
+        this.board = new BoardGrid(width, height);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    /**
+     * Starts a new game: clears the board, the hold slot and the score, and spawns the first piece
+     */
+    public void reset() {
+        board.clear();
+        holdPiece = null;
+        holdRotation = 0;
+        canHold = true;
+        gameOver = false;
+        score = 0;
+        lines = 0;
+        level = 1;
+        lastLinesCleared = 0;
+        piecesLocked = 0;
+        listener.boardReset();
+
+        nextPiece = Tetromino.getRandomPiece(random);
+        spawnPiece();
+    }
+
+    /**
+     * Makes the next piece the current one at the top center of the board
+     */
+    private void spawnPiece() {
+        currentPiece = nextPiece;
+        nextPiece = Tetromino.getRandomPiece(random);
+        pieceSerial++;
+        rotation = 0;
+        currentX = width / 2 - currentPiece.getWidth() / 2;
+        currentY = 0;
+        listener.pieceSpawned(currentPiece, nextPiece);
+
+        // Check if the new piece can be placed
+        if (!isValidPosition(currentX, currentY, currentPiece)) {
+            gameOver = true;
+            listener.gameOver();
+        }
+    }
+
+    /**
+     * Holds the current piece and swaps it with the held piece
+     * @return true if the piece was held, false if holding is not allowed yet
+     */
+    public boolean hold() {
+        if (!canHold || currentPiece == null) {
+            return false;
+        }
+
+        if (holdPiece == null) {
+            // First time holding a piece
+            holdPiece = currentPiece;
+            holdRotation = rotation;
+            listener.pieceHeld(holdPiece);
+            spawnPiece();
+        } else {
+            // Swap current and held pieces
+            Tetromino temp = currentPiece;
+            int tempRotation = rotation;
+            currentPiece = holdPiece;
+            pieceSerial++;
+            rotation = holdRotation;
+            holdPiece = temp;
+            holdRotation = tempRotation;
+            listener.pieceHeld(holdPiece);
+
+            // Reset position
+            currentX = width / 2 - currentPiece.getWidth() / 2;
+            currentY = 0;
+        }
+
+        // Can't hold again until a piece is placed
+        canHold = false;
+        return true;
+    }
+
+    public boolean moveLeft() {
+        return moveTo(currentX - 1, currentY);
+    }
+
+    public boolean moveRight() {
+        return moveTo(currentX + 1, currentY);
+    }
+
+    public boolean moveDown() {
+        return moveTo(currentX, currentY + 1);
+    }
+
+    private boolean moveTo(int x, int y) {
+        if (currentPiece == null || !isValidPosition(x, y, currentPiece)) {
+            return false;
+        }
+        currentX = x;
+        currentY = y;
+        return true;
+    }
+
+    /**
+     * Rotates the current piece clockwise, moving it one block left, right or up if needed
+     * @return true if the piece was rotated, false otherwise
+     */
+    public boolean rotate() {
+        if (currentPiece == null || gameOver) return false;
+
+        Tetromino rotated = currentPiece.getRotated();
+        // No kick first, then left, right and up
+        int[] kickX = {0, -1, 1, 0};
+        int[] kickY = {0, 0, 0, -1};
+        for (int i = 0; i < kickX.length; i++) {
+            if (isValidPosition(currentX + kickX[i], currentY + kickY[i], rotated)) {
+                currentX += kickX[i];
+                currentY += kickY[i];
+                currentPiece = rotated;
+                rotation = (rotation + 1) & 3;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies one player action the way the keyboard controls do, a soft
+     * drop locks a piece that has landed
+     * @param action One of the action constants
+     * @return true if the board changed
+     */
+    public boolean apply(int action) {
+        if (gameOver) return false;
+
+        switch (action) {
+            case MOVE_LEFT:
+                return moveLeft();
+            case MOVE_RIGHT:
+                return moveRight();
+            case MOVE_DOWN:
+                if (!moveDown()) {
+                    lockPiece();
+                }
+                return true;
+            case ROTATE:
+                return rotate();
+            case HARD_DROP:
+                hardDrop();
+                return true;
+            case HOLD:
+                return hold();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Moves the current piece down one row, or locks it if it has landed
+     * @return true if the piece locked
+     */
+    public boolean tick() {
+        if (currentPiece == null || gameOver) return false;
+        if (moveDown()) {
+            return false;
+        }
+        lockPiece();
+        return true;
+    }
+
+    /**
+     * Drops the current piece to the bottom and locks it
+     * @return Number of rows the piece fell
+     */
+    public int hardDrop() {
+        if (currentPiece == null) return 0;
+        int distance = getDropDistance();
+        currentY += distance;
+        lockPiece();
+        return distance;
+    }
+
+    /**
+     * Locks the current piece into the board, clears full lines and spawns the next piece
+     */
+    public void lockPiece() {
+        if (currentPiece == null) return;
+
+        Tetromino piece = currentPiece;
+        int cleared = stampPiece(piece, currentX, currentY);
+        if (cleared > 0) {
+            score += getLinePoints(cleared, level);
+            lines += cleared;
+            level = Math.max(level, lines / 10 + 1);
+        }
+        piecesLocked++;
+        listener.pieceLocked(piece, currentX, currentY, cleared, getStackHeight());
+
+        canHold = true;
+        spawnPiece();
+    }
+
+    /**
+     * Writes a piece into the board and clears the lines it completes
+     * @return Number of lines cleared
+     */
+    private int stampPiece(Tetromino piece, int x, int y) {
+        int[][] shape = piece.getShape();
+        int color = piece.getColor();
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                // Blocks still above the top of the board are dropped
+                if (shape[i][j] == 1 && y + i >= 0) {
+                    board.set(y + i, x + j, color);
+                }
+            }
+        }
+
+        // Only rows touched by the piece that was just placed can have become full
+        int firstRow = Math.max(0, y);
+        int lastRow = Math.min(height, y + piece.getHeight());
+        int fullRows = 0;
+        for (int row = firstRow; row < lastRow; row++) {
+            if (board.isRowFull(row)) {
+                lastClearedRows[fullRows++] = row;
+            }
+        }
+        lastLinesCleared = fullRows == 0 ? 0 : board.clearFullRows(firstRow, lastRow);
+        return lastLinesCleared;
+    }
+
+    /**
+     * Calculates how far the current piece can fall. Uses the column heights and
+     * the piece's bottom profile, which is one check per piece column instead of
+     * one collision test per row. The result is cached until the piece moves or
+     * the locked blocks change.
+     * @return Number of rows the current piece can drop
+     */
+    public int getDropDistance() {
+        if (currentPiece == dropCachePiece && currentX == dropCacheX
+                && currentY == dropCacheY && board.getVersion() == dropCacheVersion) {
+            return cachedDropDistance;
+        }
+
+        int dropDistance = Integer.MAX_VALUE;
+        int[] profile = currentPiece.getBottomProfile();
+        for (int j = 0; j < profile.length; j++) {
+            if (profile[j] < 0) continue;
+
+            int gap = board.getColumnTop(currentX + j) - 1 - (currentY + profile[j]);
+            if (gap < 0) {
+                // Piece is tucked under an overhang, the skyline does not apply
+                dropDistance = scanDropDistance();
+                break;
+            }
+            dropDistance = Math.min(dropDistance, gap);
+        }
+
+        cachedDropDistance = dropDistance;
+        dropCachePiece = currentPiece;
+        dropCacheX = currentX;
+        dropCacheY = currentY;
+        dropCacheVersion = board.getVersion();
+        return dropDistance;
+    }
+
+    /**
+     * Finds the drop distance by testing each row below the piece
+     * @return Number of rows the current piece can drop
+     */
+    private int scanDropDistance() {
+        int dropDistance = 0;
+        while (isValidPosition(currentX, currentY + dropDistance + 1, currentPiece)) {
+            dropDistance++;
+        }
+        return dropDistance;
+    }
+
+    /**
+     * Checks if a piece can be placed at the specified position
+     * @param x X position to check
+     * @param y Y position to check
+     * @param piece Piece to check
+     * @return true if position is valid, false otherwise
+     */
+    public boolean isValidPosition(int x, int y, Tetromino piece) {
+        int[][] shape = piece.getShape();
+
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] == 1) {
+                    int newY = y + i;
+                    int newX = x + j;
+
+                    // Check if out of bounds
+                    if (newX < 0 || newX >= width || newY >= height) {
+                        return false;
+                    }
+
+                    // Check if already occupied (and not above the board)
+                    if (newY >= 0 && board.get(newY, newX) != 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Replaces the locked blocks with ones received from elsewhere, such as a
+     * match server. No listener events are sent.
+     * @param cells Color index of every cell, row by row from the top
+     */
+    public void loadBoard(byte[] cells) {
+        board.clear();
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                int color = cells[row * width + column];
+                if (color != 0) {
+                    board.set(row, column, color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the score of a mirrored state
+     * @param score Score
+     * @param lines Lines cleared
+     * @param level Level
+     * @param gameOver Whether the game has ended
+     */
+    public void loadScore(int score, int lines, int level, boolean gameOver) {
+        this.score = score;
+        this.lines = lines;
+        this.level = level;
+        this.gameOver = gameOver;
+    }
+
+    /**
+     * Replaces the falling piece of a mirrored state. No listener events are sent.
+     * @param piece The piece, already turned to its rotation, or null for none
+     * @param pieceRotation Clockwise turns of the piece
+     * @param x Column of the piece
+     * @param y Row of the piece
+     */
+    public void setCurrentPiece(Tetromino piece, int pieceRotation, int x, int y) {
+        if (piece != currentPiece) {
+            pieceSerial++;
+        }
+        currentPiece = piece;
+        rotation = pieceRotation & 3;
+        currentX = x;
+        currentY = y;
+    }
+
+    public void setNextPiece(Tetromino piece) {
+        nextPiece = piece;
+    }
+
+    public void setHoldPiece(Tetromino piece, int pieceRotation) {
+        holdPiece = piece;
+        holdRotation = pieceRotation & 3;
+    }
+
+    /**
+     * Locks a piece into a mirrored state at the position another engine
+     * locked it. Unlike lockPiece no score is added and no piece spawns.
+     * @param piece The locked piece, turned to its rotation
+     * @param x Column of the piece
+     * @param y Row of the piece
+     * @return Number of rows cleared, see getLastClearedRow for which
+     */
+    public int lockRemotePiece(Tetromino piece, int x, int y) {
+        return stampPiece(piece, x, y);
+    }
+
+    /**
+     * Creates a piece turned clockwise a number of times from its spawn rotation
+     * @param type Piece type
+     * @param rotation Clockwise turns, 0 to 3
+     * @return The piece
+     */
+    public static Tetromino createPiece(int type, int rotation) {
+        Tetromino piece = new Tetromino(type);
+        for (int i = 0; i < (rotation & 3); i++) {
+            piece = piece.getRotated();
+        }
+        return piece;
+    }
+
+    /**
+     * Gets the points for clearing lines at once
+     * @param lines Lines cleared by one piece, 1 to 4
+     * @param level Current level
+     * @return Points earned
+     */
+    public static int getLinePoints(int lines, int level) {
+        switch (lines) {
+            case 1: return 100 * level;
+            case 2: return 300 * level;
+            case 3: return 500 * level;
+            case 4: return 800 * level;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Gets the time between gravity ticks, the game speeds up with higher levels
+     * @param level Current level
+     * @return Delay in milliseconds
+     */
+    public static int getGravityDelay(int level) {
+        return Math.max(100, 1000 - (level - 1) * 50);
+    }
+
+    /**
+     * Calculates the height of the stack from the bottom of the board
+     * @return Number of rows from the floor up to the highest occupied row
+     */
+    public int getStackHeight() {
+        return height - board.getHighestRow();
+    }
+
+    public BoardGrid getBoard() { return board; }
+    public Tetromino getCurrentPiece() { return currentPiece; }
+    public Tetromino getNextPiece() { return nextPiece; }
+    public Tetromino getHoldPiece() { return holdPiece; }
+    public int getRotation() { return rotation; }
+    public int getHoldRotation() { return holdRotation; }
+    public int getCurrentX() { return currentX; }
+    public int getCurrentY() { return currentY; }
+    public boolean canHold() { return canHold; }
+    public boolean isGameOver() { return gameOver; }
+    public int getScore() { return score; }
+    public int getLines() { return lines; }
+    public int getLevel() { return level; }
+    public int getLastLinesCleared() { return lastLinesCleared; }
+
+    /**
+     * Gets a row cleared by the last locked piece, as it was numbered before the clear
+     * @param index 0 to getLastLinesCleared() - 1, top row first
+     * @return The row
+     */
+    public int getLastClearedRow(int index) {
+        if (index < 0 || index >= lastLinesCleared) {
+            throw new IndexOutOfBoundsException("Cleared row " + index + " of " + lastLinesCleared);
+        }
+        return lastClearedRows[index];
+    }
+    public int getPieceSerial() { return pieceSerial; }
+    public int getPiecesLocked() { return piecesLocked; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
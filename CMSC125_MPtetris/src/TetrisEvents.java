@@ -0,0 +1,102 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events emitted by the game engine.
+ * Events are only committed while a recording is active, so the cost when
+ * nothing is recording is a disabled-event check. Start a recording with:
+ *   jcmd <pid> JFR.start name=tetris filename=tetris.jfr
+ */
+public final class TetrisEvents {
+    private TetrisEvents() {
+    }
+
+    /**
+     * One gravity step of a game thread, including the time spent waiting for the game lock
+     */
+    @Name("tetris.GravityTick")
+    @Label("Gravity Tick")
+    @Category({"Tetris", "Engine"})
+    @StackTrace(false)
+    public static class GravityTick extends Event {
+        @Label("Player")
+        public String player;
+
+        @Label("Lock Wait")
+        @Description("Time spent waiting to acquire the game lock")
+        @Timespan(Timespan.NANOSECONDS)
+        public long lockWait;
+
+        @Label("Piece Locked")
+        public boolean pieceLocked;
+    }
+
+    /**
+     * A piece being locked into the board
+     */
+    @Name("tetris.PiecePlaced")
+    @Label("Piece Placed")
+    @Category({"Tetris", "Engine"})
+    @StackTrace(false)
+    public static class PiecePlaced extends Event {
+        @Label("Piece Type")
+        public int pieceType;
+
+        @Label("Lines Cleared")
+        public int linesCleared;
+
+        @Label("Stack Height")
+        @Description("Height of the highest occupied row after the lock")
+        public int stackHeight;
+    }
+
+    /**
+     * One paintComponent call of a game board
+     */
+    @Name("tetris.BoardPaint")
+    @Label("Board Paint")
+    @Category({"Tetris", "Rendering"})
+    @StackTrace(false)
+    public static class BoardPaint extends Event {
+        @Label("Blocks Drawn")
+        public int blocksDrawn;
+    }
+
+    /**
+     * Latency from a key event to the first painted frame that reflects it
+     */
+    @Name("tetris.InputLatency")
+    @Label("Input Latency")
+    @Category({"Tetris", "Input"})
+    @StackTrace(false)
+    public static class InputLatency extends Event {
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        public long latency;
+
+        @Label("Coalesced Inputs")
+        @Description("Number of inputs first shown by the same frame")
+        public int coalescedInputs;
+    }
+
+    /**
+     * A sound effect trigger
+     */
+    @Name("tetris.SoundTrigger")
+    @Label("Sound Trigger")
+    @Category({"Tetris", "Audio"})
+    @StackTrace(false)
+    public static class SoundTrigger extends Event {
+        @Label("Sound")
+        public String sound;
+
+        @Label("Played")
+        @Description("False when the sound was not loaded")
+        public boolean played;
+    }
+}
@@ -2,6 +2,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -27,10 +28,9 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
     private JLabel highScoreLabel;
     private HighScoreManager highScoreManager;
 
-    // Game state
-    private int score = 0;
-    private int level = 1;
-    private int linesCleared = 0;
+    private final GameEventBus eventBus = new GameEventBus();
+    // Copies the board's side panel values into the labels once per frame
+    private final HudModel.View sidePanelView = new SidePanelView();
 
     // Thread-safe variables for concurrency control
     private final ReentrantLock gameLock = new ReentrantLock();
@@ -50,10 +50,12 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         soundManager = new SoundManager(false);
         
         // Initialize high score manager
-        highScoreManager = new HighScoreManager();
+        highScoreManager = AssetLoader.getHighScoreManager();
 
         // Set up the main game panels
         setupGameComponents();
+        subscribeToEvents();
+        FrameScheduler.register(getRootPane(), () -> gameBoard.getHudModel().flush(sidePanelView));
 
         // Set up keyboard controls
         setupKeyBindings();
@@ -228,87 +230,57 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         actionMap.put("moveLeft", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        gameBoard.moveCurrentPieceLeft();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, gameBoard::moveCurrentPieceLeft);
             }
         });
 
         actionMap.put("moveRight", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        gameBoard.moveCurrentPieceRight();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, gameBoard::moveCurrentPieceRight);
             }
         });
 
         actionMap.put("moveDown", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        if (!gameBoard.moveCurrentPieceDown()) {
-                            gameBoard.placePiece();
-                        }
-                    } finally {
-                        gameLock.unlock();
+                applyInput(e, () -> {
+                    if (!gameBoard.moveCurrentPieceDown()) {
+                        gameBoard.placePiece();
                     }
-                }
+                    return true;
+                });
             }
         });
 
         actionMap.put("rotate", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        gameBoard.rotateCurrentPiece();
-                        soundManager.playRotateSound();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, () -> {
+                    boolean rotated = gameBoard.rotateCurrentPiece();
+                    soundManager.playRotateSound();
+                    return rotated;
+                });
             }
         });
 
         actionMap.put("hardDrop", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        gameBoard.hardDrop();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, () -> {
+                    gameBoard.hardDrop();
+                    return true;
+                });
             }
         });
 
         actionMap.put("holdPiece", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        gameBoard.holdCurrentPiece();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, () -> {
+                    gameBoard.holdCurrentPiece();
+                    return true;
+                });
             }
         });
 
@@ -320,11 +292,42 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         });
     }
 
+    /**
+     * Applies a player command to the board under the game lock. The command is
+     * stamped on entry so the board can measure the latency until it is painted.
+     * @param e The key binding action event
+     * @param command Board mutation returning true if it changed what is shown
+     */
+    private void applyInput(ActionEvent e, BooleanSupplier command) {
+        if (isPaused.get() || isGameOver.get()) {
+            return;
+        }
+
+        long enteredNanos = System.nanoTime();
+        long stamp = GameBoard.inputStamp(e.getWhen(), enteredNanos);
+        boolean changed;
+        gameLock.lock();
+        try {
+            gameBoard.recordLockWait(System.nanoTime() - enteredNanos);
+            changed = command.getAsBoolean();
+            if (changed) {
+                gameBoard.getSessionStats().recordInput();
+            }
+        } finally {
+            gameLock.unlock();
+        }
+
+        if (changed) {
+            gameBoard.stampInput(stamp);
+        }
+    }
+
     /**
      * Toggles the pause state of the game
      */
     private void togglePause() {
         isPaused.set(!isPaused.get());
+        Telemetry.record(Telemetry.PAUSE, 0, isPaused.get() ? 1 : 0);
         if (isPaused.get()) {
             gameBoard.showPauseMessage();
             soundManager.stopBackgroundMusic();
@@ -335,81 +338,72 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
     }
 
     /**
-     * Updates the score based on the number of lines cleared
-     * @param clearedLines Number of lines cleared in one move
+     * Connects the sounds to the board's events, the side panel follows the
+     * board's HudModel instead
      */
-    public void updateScore(int clearedLines) {
-        if (clearedLines > 0) {
-            // Score calculation based on level and lines cleared
-            int points = 0;
-            switch (clearedLines) {
-                case 1: points = 100 * level; break;
-                case 2: points = 300 * level; break;
-                case 3: points = 500 * level; break;
-                case 4: points = 800 * level; break;
-            }
-
-            score += points;
-            linesCleared += clearedLines;
-
-            // Level up every 10 lines
-            int newLevel = (linesCleared / 10) + 1;
-            if (newLevel > level) {
-                level = newLevel;
-                soundManager.playLevelUpSound();
-            }
-
-            // Update UI
-            updateScoreLabels();
-            
-            // Play line clear sound
-            soundManager.playLineClearSound();
-        }
+    private void subscribeToEvents() {
+        eventBus.subscribe(GameEventBus.PieceLocked.class, event -> playPieceDropSound());
+        eventBus.subscribe(GameEventBus.LevelUp.class, event -> soundManager.playLevelUpSound());
+        eventBus.subscribe(GameEventBus.LinesCleared.class, event -> soundManager.playLineClearSound());
+        eventBus.subscribe(GameEventBus.GameOver.class, this::gameOver);
     }
 
     /**
-     * Updates the score display in the UI
+     * Shows the values the HudModel flush reports as changed. All calls of
+     * one flush run in the same event thread task, so Swing lays out and
+     * paints the side panel once for all of them.
      */
-    private void updateScoreLabels() {
-        scoreLabel.setText("SCORE: " + score);
-        levelLabel.setText("LEVEL: " + level);
-        linesLabel.setText("LINES: " + linesCleared);
-        highScoreLabel.setText("HIGH SCORE: " + highScoreManager.getHighestScore());
+    private class SidePanelView implements HudModel.View {
+        @Override
+        public void showScore(int score) {
+            scoreLabel.setText("SCORE: " + score);
+        }
 
-        // Update label colors based on level
-        Color levelColor = Color.getHSBColor((level * 0.1f) % 1.0f, 0.8f, 1.0f);
-        levelLabel.setForeground(levelColor);
-    }
+        @Override
+        public void showLines(int lines) {
+            linesLabel.setText("LINES: " + lines);
+        }
 
-    /**
-     * Updates the next piece preview panel
-     * @param piece The next tetromino to display
-     */
-    public void updateNextPiecePanel(Tetromino piece) {
-        nextPiecePanel.updatePreview(piece);
-    }
+        @Override
+        public void showLevel(int level) {
+            levelLabel.setText("LEVEL: " + level);
 
-    /**
-     * Updates the hold piece preview panel
-     * @param piece The held tetromino to display
-     */
-    public void updateHoldPiecePanel(Tetromino piece) {
-        holdPiecePanel.updatePreview(piece);
+            // Update label colors based on level
+            Color levelColor = Color.getHSBColor((level * 0.1f) % 1.0f, 0.8f, 1.0f);
+            levelLabel.setForeground(levelColor);
+        }
+
+        @Override
+        public void showNextPiece(Tetromino piece) {
+            nextPiecePanel.updatePreview(piece);
+        }
+
+        @Override
+        public void showHoldPiece(Tetromino piece) {
+            holdPiecePanel.updatePreview(piece);
+        }
     }
 
     /**
      * Starts the game thread
      */
     public void startGame() {
+        startSpectatorSession();
         gameThread.start();
         soundManager.playBackgroundMusic();
     }
 
     /**
      * Ends the game and shows game over message
+     * @param event The board's final totals
      */
-    public void gameOver() {
+    private void gameOver(GameEventBus.GameOver event) {
+        int score = event.score;
+        int linesCleared = event.lines;
+        int level = event.level;
         isGameOver.set(true);
+        gameBoard.getSessionStats().finish();
+        Telemetry.record(Telemetry.GAME_OVER, 0, score);
         soundManager.playGameOverSound();
         
         // Show save score dialog
@@ -429,15 +423,24 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
             UITheme.TEXT_FONT
         );
         
+        JLabel rankLabel = UITheme.createStyledLabel(
+            String.format("Rank: #%d of %d games",
+                highScoreManager.getRank(score), highScoreManager.getGamesPlayed() + 1),
+            UITheme.TEXT_FONT
+        );
+
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         scoreLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         statsLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        rankLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         scorePanel.add(titleLabel);
         scorePanel.add(Box.createRigidArea(new Dimension(0, 20)));
         scorePanel.add(scoreLabel);
         scorePanel.add(Box.createRigidArea(new Dimension(0, 10)));
         scorePanel.add(statsLabel);
+        scorePanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        scorePanel.add(rankLabel);
         scorePanel.add(Box.createRigidArea(new Dimension(0, 30)));
 
         // Add text field
@@ -454,10 +457,12 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         saveButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         skipButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        String[] sessionPlayer = {"Player"};
         saveButton.addActionListener(e -> {
             String username = nameField.getText().trim();
             if (!username.isEmpty()) {
                 highScoreManager.saveHighScore(username, score, linesCleared, level);
+                sessionPlayer[0] = username;
                 scoreDialog.dispose();
             }
         });
@@ -470,6 +475,10 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
 
         scoreDialog.add(scorePanel);
         scoreDialog.setVisible(true);
+
+        // The dialog is modal, so the player's name is known once it closes
+        AssetLoader.getSessionStatsStore().record(
+            sessionPlayer[0], gameBoard.getSessionStats(), score, linesCleared, level);
         
         // Show game over message
         gameBoard.showGameOverMessage();
@@ -483,7 +492,15 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
      * @return The current level
      */
     public int getLevel() {
-        return level;
+        return gameBoard.getHudModel().getLevel();
+    }
+
+    /**
+     * Gets the bus the game board publishes its events to
+     * @return The event bus
+     */
+    public GameEventBus getEventBus() {
+        return eventBus;
     }
 
     /**
@@ -514,17 +531,13 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
      * Restarts the game
      */
     private void restartGame() {
-        // Reset game state
-        score = 0;
-        level = 1;
-        linesCleared = 0;
+        // Reset game state, the side panel follows the board reset below
         isGameOver.set(false);
         isPaused.set(false);
-        
-        // Update score display
-        updateScoreLabels();
+        highScoreLabel.setText("HIGH SCORE: " + highScoreManager.getHighestScore());
         
         // Reset the game board
+        startSpectatorSession();
         gameBoard.cleanup();
         gameBoard.resetBoard();
         gameBoard.initializeGame();
@@ -544,6 +557,16 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         soundManager.playBackgroundMusic();
     }
 
+    /**
+     * Lets spectators watch the game that is about to start
+     */
+    private void startSpectatorSession() {
+        SpectatorBroadcaster broadcaster = SpectatorBroadcaster.getInstance();
+        if (broadcaster != null) {
+            gameBoard.setSpectatorFeed(broadcaster.startSession(gameBoard.getEngine())[0]);
+        }
+    }
+
     /**
      * Returns to the start menu
      */
@@ -551,6 +574,7 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         if (gameThread != null) {
             gameThread.interrupt();
         }
+        reportInputLatency();
         soundManager.cleanup();
         gameBoard.cleanup();
         new StartScreen().setVisible(true);
@@ -571,20 +595,32 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
 
             while (!isGameOver.get()) {
                 if (!isPaused.get()) {
+                    TetrisEvents.GravityTick tickEvent = new TetrisEvents.GravityTick();
+                    tickEvent.begin();
+                    long lockRequested = tickEvent.isEnabled() ? System.nanoTime() : 0;
                     gameLock.lock();
                     try {
+                        if (tickEvent.isEnabled()) {
+                            tickEvent.lockWait = System.nanoTime() - lockRequested;
+                        }
+
                         // Move piece down
                         if (!gameBoard.moveCurrentPieceDown()) {
                             gameBoard.placePiece();
+                            tickEvent.pieceLocked = true;
                         }
                     } finally {
                         gameLock.unlock();
                     }
+                    if (tickEvent.shouldCommit()) {
+                        tickEvent.player = "Player";
+                        tickEvent.commit();
+                    }
                 }
 
                 // Sleep based on current level (game speeds up with higher levels)
                 try {
-                    int delay = Math.max(100, 1000 - (level - 1) * 50);
+                    int delay = TetrisEngine.getGravityDelay(getLevel());
                     Thread.sleep(delay);
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
@@ -594,6 +630,16 @@ public class TetrisGame extends JFrame implements TetrisGameInterface {
         }
     }
 
+    /**
+     * Prints the input latency histograms when started with -Dtetris.latencyReport=true
+     */
+    private void reportInputLatency() {
+        if (Boolean.getBoolean("tetris.latencyReport")) {
+            System.out.println("Player " + gameBoard.getInputLatencyHistogram().summary());
+            System.out.println("Player " + gameBoard.getLockWaitHistogram().summary());
+        }
+    }
+
     public void playPieceDropSound() {
         soundManager.playPieceDropSound();
     }
@@ -1,11 +1,8 @@
 import java.util.concurrent.locks.ReentrantLock;
 
 public interface TetrisGameInterface {
-    void updateNextPiecePanel(Tetromino piece);
-    void updateHoldPiecePanel(Tetromino piece);
-    void updateScore(int linesCleared);
-    void gameOver();
+    GameEventBus getEventBus();
     boolean isPaused();
     boolean isGameOver();
     ReentrantLock getGameLock();
-} 
\ No newline at end of file
+}
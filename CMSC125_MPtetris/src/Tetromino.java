@@ -19,6 +19,7 @@ public class Tetromino {
     private int[][] shape;
     private int color;
     private int type;
+    private int[] bottomProfile;
 
     /**
      * Constructor for a tetromino piece
@@ -135,6 +136,29 @@ public class Tetromino {
         return shape.length;
     }
 
+    /**
+     * Gets the lowest occupied row of each column of this rotation's shape.
+     * Used with the board's column heights to find the drop distance without
+     * testing every row.
+     * @return Row offset of the lowest block per column, or -1 for empty columns
+     */
+    public int[] getBottomProfile() {
+        if (bottomProfile == null) {
+            int[] profile = new int[shape[0].length];
+            for (int j = 0; j < profile.length; j++) {
+                profile[j] = -1;
+                for (int i = shape.length - 1; i >= 0; i--) {
+                    if (shape[i][j] == 1) {
+                        profile[j] = i;
+                        break;
+                    }
+                }
+            }
+            bottomProfile = profile;
+        }
+        return bottomProfile;
+    }
+
     /**
      * Creates a new tetromino with the shape rotated 90 degrees clockwise
      * @return A new rotated tetromino
@@ -2,6 +2,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -30,7 +31,11 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
     private final AtomicBoolean isPaused = new AtomicBoolean(false);
     private final AtomicBoolean isGameOver = new AtomicBoolean(false);
     private final ReentrantLock gameLock = new ReentrantLock();
+    private final GameEventBus eventBus = new GameEventBus();
     private SoundManager soundManager;
+    // Copies each board's side panel values into its own labels and previews once per frame
+    private HudModel.View player1View;
+    private HudModel.View player2View;
 
     public TwoPlayerTetrisGame() {
         setTitle("Two Player Tetris");
@@ -40,6 +45,15 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         setResizable(false);
         soundManager = new SoundManager(true);
         setupGameComponents();
+        subscribeToEvents();
+        player1View = new PlayerView(player1NextPanel, player1HoldPanel,
+            player1ScoreLabel, player1LevelLabel, player1LinesLabel);
+        player2View = new PlayerView(player2NextPanel, player2HoldPanel,
+            player2ScoreLabel, player2LevelLabel, player2LinesLabel);
+        FrameScheduler.register(getRootPane(), () -> {
+            player1Board.getHudModel().flush(player1View);
+            player2Board.getHudModel().flush(player2View);
+        });
         setupKeyBindings();
         pack();
         setLocationRelativeTo(null);
@@ -52,10 +66,12 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
 
         JPanel player1Panel = createPlayerPanel("Player 1");
         player1Board = new GameBoard(this, 10, 20, 30);
+        player1Board.setPlayerNumber(1);
         player1Panel.add(player1Board, BorderLayout.CENTER);
 
         JPanel player2Panel = createPlayerPanel("Player 2");
         player2Board = new GameBoard(this, 10, 20, 30);
+        player2Board.setPlayerNumber(2);
         player2Panel.add(player2Board, BorderLayout.CENTER);
 
         mainPanel.add(player1Panel);
@@ -202,86 +218,53 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         actionMap.put("moveLeft", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        board.moveCurrentPieceLeft();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, board, board::moveCurrentPieceLeft);
             }
         });
 
         actionMap.put("moveRight", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        board.moveCurrentPieceRight();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, board, board::moveCurrentPieceRight);
             }
         });
 
         actionMap.put("moveDown", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        if (!board.moveCurrentPieceDown()) {
-                            board.placePiece();
-                        }
-                    } finally {
-                        gameLock.unlock();
+                applyInput(e, board, () -> {
+                    if (!board.moveCurrentPieceDown()) {
+                        board.placePiece();
                     }
-                }
+                    return true;
+                });
             }
         });
 
         actionMap.put("rotate", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        board.rotateCurrentPiece();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, board, board::rotateCurrentPiece);
             }
         });
 
         actionMap.put("hardDrop", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        board.hardDrop();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, board, () -> {
+                    board.hardDrop();
+                    return true;
+                });
             }
         });
 
         actionMap.put("holdPiece", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (!isPaused.get() && !isGameOver.get()) {
-                    gameLock.lock();
-                    try {
-                        board.holdCurrentPiece();
-                    } finally {
-                        gameLock.unlock();
-                    }
-                }
+                applyInput(e, board, () -> {
+                    board.holdCurrentPiece();
+                    return true;
+                });
             }
         });
 
@@ -311,8 +294,40 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         });
     }
 
+    /**
+     * Applies a player command to a board under the game lock. The command is
+     * stamped on entry so the board can measure the latency until it is painted.
+     * @param e The key binding action event
+     * @param board The board of the player who pressed the key
+     * @param command Board mutation returning true if it changed what is shown
+     */
+    private void applyInput(ActionEvent e, GameBoard board, BooleanSupplier command) {
+        if (isPaused.get() || isGameOver.get()) {
+            return;
+        }
+
+        long enteredNanos = System.nanoTime();
+        long stamp = GameBoard.inputStamp(e.getWhen(), enteredNanos);
+        boolean changed;
+        gameLock.lock();
+        try {
+            board.recordLockWait(System.nanoTime() - enteredNanos);
+            changed = command.getAsBoolean();
+            if (changed) {
+                board.getSessionStats().recordInput();
+            }
+        } finally {
+            gameLock.unlock();
+        }
+
+        if (changed) {
+            board.stampInput(stamp);
+        }
+    }
+
     private void togglePause() {
         isPaused.set(!isPaused.get());
+        Telemetry.record(Telemetry.PAUSE, 0, isPaused.get() ? 1 : 0);
         if (isPaused.get()) {
             player1Board.showPauseMessage();
             player2Board.showPauseMessage();
@@ -325,6 +340,7 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
     }
 
     public void startGame() {
+        startSpectatorSession();
         player1Board.initializeGame();
         player2Board.initializeGame();
         
@@ -344,16 +360,11 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
             player2Thread.interrupt();
         }
 
+        // The side panels follow the board resets below
         isGameOver.set(false);
         isPaused.set(false);
         
-        player1ScoreLabel.setText("Score: 0");
-        player2ScoreLabel.setText("Score: 0");
-        player1LevelLabel.setText("Level: 1");
-        player2LevelLabel.setText("Level: 1");
-        player1LinesLabel.setText("Lines: 0");
-        player2LinesLabel.setText("Lines: 0");
-        
+        startSpectatorSession();
         player1Board.cleanup();
         player2Board.cleanup();
         player1Board.resetBoard();
@@ -374,6 +385,19 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         soundManager.playBackgroundMusic();
     }
 
+    /**
+     * Lets spectators watch the game that is about to start
+     */
+    private void startSpectatorSession() {
+        SpectatorBroadcaster broadcaster = SpectatorBroadcaster.getInstance();
+        if (broadcaster != null) {
+            SpectatorBroadcaster.Feed[] feeds =
+                broadcaster.startSession(player1Board.getEngine(), player2Board.getEngine());
+            player1Board.setSpectatorFeed(feeds[0]);
+            player2Board.setSpectatorFeed(feeds[1]);
+        }
+    }
+
     private void returnToMenu() {
         if (player1Thread != null) {
             player1Thread.interrupt();
@@ -381,6 +405,7 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         if (player2Thread != null) {
             player2Thread.interrupt();
         }
+        reportInputLatency();
         soundManager.cleanup();
         player1Board.cleanup();
         player2Board.cleanup();
@@ -390,7 +415,6 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
 
     private class GameThread extends Thread {
         private final GameBoard board;
-        private static final long FRAME_DELAY = 1000;
         private final String playerName;
 
         public GameThread(GameBoard board, String playerName) {
@@ -404,16 +428,28 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
             while (!isInterrupted() && !isGameOver.get()) {
                 try {
                     if (!isPaused.get()) {
+                        TetrisEvents.GravityTick tickEvent = new TetrisEvents.GravityTick();
+                        tickEvent.begin();
+                        long lockRequested = tickEvent.isEnabled() ? System.nanoTime() : 0;
                         gameLock.lock();
                         try {
+                            if (tickEvent.isEnabled()) {
+                                tickEvent.lockWait = System.nanoTime() - lockRequested;
+                            }
                             if (!board.moveCurrentPieceDown()) {
                                 board.placePiece();
+                                tickEvent.pieceLocked = true;
                             }
                         } finally {
                             gameLock.unlock();
                         }
+                        if (tickEvent.shouldCommit()) {
+                            tickEvent.player = playerName;
+                            tickEvent.commit();
+                        }
                     }
-                    Thread.sleep(FRAME_DELAY);
+                    // Each player speeds up with their own level
+                    Thread.sleep(TetrisEngine.getGravityDelay(board.getHudModel().getLevel()));
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
@@ -422,26 +458,67 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         }
     }
 
-    @Override
-    public void updateNextPiecePanel(Tetromino piece) {
-        if (piece == player1Board.getNextPiece()) {
-            player1NextPanel.updatePreview(piece);
-        } else {
-            player2NextPanel.updatePreview(piece);
-        }
+    /**
+     * Connects the sounds to the boards' events, each player's side panel
+     * follows their board's HudModel instead
+     */
+    private void subscribeToEvents() {
+        eventBus.subscribe(GameEventBus.PieceLocked.class, event -> playPieceDropSound());
+        eventBus.subscribe(GameEventBus.LinesCleared.class, event -> soundManager.playLineClearSound());
+        eventBus.subscribe(GameEventBus.GameOver.class, event -> gameOver(event.player));
     }
 
-    @Override
-    public void updateHoldPiecePanel(Tetromino piece) {
-        if (piece == player1Board.getHoldPiece()) {
-            player1HoldPanel.updatePreview(piece);
-        } else {
-            player2HoldPanel.updatePreview(piece);
+    /**
+     * Shows the values the HudModel flush reports as changed for one player,
+     * bound to that player's own labels and previews
+     */
+    private static class PlayerView implements HudModel.View {
+        private final PreviewPanel nextPanel;
+        private final PreviewPanel holdPanel;
+        private final JLabel scoreLabel;
+        private final JLabel levelLabel;
+        private final JLabel linesLabel;
+
+        PlayerView(PreviewPanel nextPanel, PreviewPanel holdPanel,
+                   JLabel scoreLabel, JLabel levelLabel, JLabel linesLabel) {
+            this.nextPanel = nextPanel;
+            this.holdPanel = holdPanel;
+            this.scoreLabel = scoreLabel;
+            this.levelLabel = levelLabel;
+            this.linesLabel = linesLabel;
+        }
+
+        @Override
+        public void showScore(int score) {
+            scoreLabel.setText("Score: " + score);
+        }
+
+        @Override
+        public void showLines(int lines) {
+            linesLabel.setText("Lines: " + lines);
+        }
+
+        @Override
+        public void showLevel(int level) {
+            levelLabel.setText("Level: " + level);
+        }
+
+        @Override
+        public void showNextPiece(Tetromino piece) {
+            nextPanel.updatePreview(piece);
+        }
+
+        @Override
+        public void showHoldPiece(Tetromino piece) {
+            holdPanel.updatePreview(piece);
         }
     }
 
-    @Override
-    public void gameOver() {
+    /**
+     * Ends the game for both players
+     * @param loser The player whose board filled up, 1 or 2
+     */
+    private void gameOver(int loser) {
         if (isGameOver.get()) {
             return;
         }
@@ -449,9 +526,7 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
         isGameOver.set(true);
         soundManager.stopBackgroundMusic();
         soundManager.playGameOverSound();
-        
-        Thread currentThread = Thread.currentThread();
-        String threadName = currentThread.getName();
+        recordSessions();
         
         if (player1Thread != null) {
             player1Thread.interrupt();
@@ -460,15 +535,14 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
             player2Thread.interrupt();
         }
         
-        if (threadName.contains("Player1")) {
+        Telemetry.record(Telemetry.GAME_OVER, loser, 0);
+
+        if (loser == 1) {
             player1Board.showGameOverMessage("YOU LOSE\nR = Restart\nM = Menu");
             player2Board.showGameOverMessage("YOU WIN!\nR = Restart\nM = Menu");
-        } else if (threadName.contains("Player2")) {
+        } else {
             player1Board.showGameOverMessage("YOU WIN!\nR = Restart\nM = Menu");
             player2Board.showGameOverMessage("YOU LOSE\nR = Restart\nM = Menu");
-        } else {
-            player1Board.showGameOverMessage("GAME OVER\nR = Restart\nM = Menu");
-            player2Board.showGameOverMessage("GAME OVER\nR = Restart\nM = Menu");
         }
     }
 
@@ -488,15 +562,50 @@ public class TwoPlayerTetrisGame extends JFrame implements TetrisGameInterface {
     }
 
     @Override
-    public void updateScore(int linesCleared) {
-        if (linesCleared > 0) {
-            soundManager.playLineClearSound();
-            
-            if (linesCleared == player1Board.getLastLinesCleared()) {
-                player1ScoreLabel.setText("Score: " + (Integer.parseInt(player1ScoreLabel.getText().split(": ")[1]) + linesCleared * 100));
-            } else {
-                player2ScoreLabel.setText("Score: " + (Integer.parseInt(player2ScoreLabel.getText().split(": ")[1]) + linesCleared * 100));
-            }
+    public GameEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Stores both players' session stats for the finished game
+     */
+    private void recordSessions() {
+        SessionStatsStore store = AssetLoader.getSessionStatsStore();
+        player1Board.getSessionStats().finish();
+        player2Board.getSessionStats().finish();
+        recordSession(store, "Player 1", player1Board);
+        recordSession(store, "Player 2", player2Board);
+    }
+
+    /**
+     * Stores one player's session with the totals of their own board
+     */
+    private void recordSession(SessionStatsStore store, String playerName, GameBoard board) {
+        int score;
+        int lines;
+        int level;
+        // The other board's thread may still be finishing a move
+        gameLock.lock();
+        try {
+            TetrisEngine engine = board.getEngine();
+            score = engine.getScore();
+            lines = engine.getLines();
+            level = engine.getLevel();
+        } finally {
+            gameLock.unlock();
+        }
+        store.record(playerName, board.getSessionStats(), score, lines, level);
+    }
+
+    /**
+     * Prints both players' input latency histograms when started with -Dtetris.latencyReport=true
+     */
+    private void reportInputLatency() {
+        if (Boolean.getBoolean("tetris.latencyReport")) {
+            System.out.println("Player 1 " + player1Board.getInputLatencyHistogram().summary());
+            System.out.println("Player 1 " + player1Board.getLockWaitHistogram().summary());
+            System.out.println("Player 2 " + player2Board.getInputLatencyHistogram().summary());
+            System.out.println("Player 2 " + player2Board.getLockWaitHistogram().summary());
         }
     }
 
@@ -24,10 +24,9 @@ public class UITheme {
             private boolean pressed = false;
             private float hoverAnim = 0f;
             private float borderAnim = 0f;
-            private Timer animTimer;
             {
                 setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
-                animTimer = new Timer(16, e -> {
+                FrameScheduler.register(this, () -> {
                     float target = hovered ? 1f : 0f;
                     if (Math.abs(hoverAnim - target) > 0.01f) {
                         hoverAnim += (target - hoverAnim) * 0.2f;
@@ -40,7 +39,6 @@ public class UITheme {
                     if (borderAnim > 1f) borderAnim -= 1f;
                     if (hovered) repaint();
                 });
-                animTimer.start();
                 addMouseListener(new java.awt.event.MouseAdapter() {
                     @Override
                     public void mouseEntered(java.awt.event.MouseEvent e) {
@@ -0,0 +1,382 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Command line tool that evolves the HeuristicBot weights with a genetic
+ * algorithm and writes the best ones to the weights file bots load at
+ * startup.
+ * Every generation each candidate plays the same seeded games, so
+ * candidates are compared on the same piece sequences and not on luck.
+ * The seeds change from one generation to the next so the weights do not
+ * overfit a few sequences. All games of a generation are spread over a
+ * ForkJoinPool, so a generation takes about games x candidates / cores.
+ * Fitness is the mean score. Unlike lines, which a piece limit caps at
+ * about 0.4 per piece, score keeps rewarding multi-line clears and the
+ * faster levels they reach, so strong candidates stay apart. The best
+ * tenth of a generation survives, the rest are children of two tournament
+ * winners, averaged by fitness and sometimes mutated. Weights are kept at
+ * unit length since only their ratios change which placement is best.
+ * A generation's best score is partly luck of its seeds, so the survivors
+ * are scored again on a fixed held-out set of seeds that training never
+ * plays, and the weights written out are those with the best held-out
+ * score over all generations.
+ * After every generation the population is checkpointed, and a later run
+ * with the same checkpoint file continues from there. All randomness of a
+ * generation derives from the seed and the generation number, so a
+ * resumed run evolves exactly like an uninterrupted one.
+ *
+ * Usage: java WeightTuner [--generations G] [--population P] [--games K]
+ *        [--validation-games V] [--max-pieces N] [--seed S] [--threads T]
+ *        [--checkpoint file] [--out weights file] [--fresh]
+ */
+public class WeightTuner {
+    private static final String CHECKPOINT_FILE = "tuner-checkpoint.properties";
+    private static final int TOURNAMENT_SIZE = 4;
+    private static final double ELITE_FRACTION = 0.1;
+    private static final double MUTATION_CHANCE = 0.3;
+    private static final double MUTATION_SIZE = 0.2;
+    // Held-out seeds start far beyond any generation's training seeds
+    private static final long VALIDATION_SEED_OFFSET = 1L << 40;
+
+    private final int populationSize;
+    private final int gamesPerCandidate;
+    private final int validationGames;
+    private final int maxPieces;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    // Candidates of the generation about to be played
+    private double[][] population;
+    private int generation;
+    // Best weights so far by held-out score
+    private double[] bestWeights;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructor for a tuner starting from a random population around the default weights
+     * @param populationSize Candidates per generation
+     * @param gamesPerCandidate Games each candidate plays per generation
+     * @param validationGames Held-out games the survivors of each generation play
+     * @param maxPieces Pieces after which a game stops
+     * @param seed Seed of the games and of the evolution
+     * @param threads Worker threads
+     */
+    public WeightTuner(int populationSize, int gamesPerCandidate, int validationGames, int maxPieces,
+                       long seed, int threads) {
+        this.populationSize = populationSize;
+        this.gamesPerCandidate = gamesPerCandidate;
+        this.validationGames = validationGames;
+        this.maxPieces = maxPieces;
+        this.seed = seed;
+        this.pool = new ForkJoinPool(threads);
+
+        Random random = new Random(seed);
+        population = new double[populationSize][];
+        population[0] = normalize(HeuristicBot.DEFAULT_WEIGHTS.clone());
+        for (int i = 1; i < populationSize; i++) {
+            double[] weights = new double[HeuristicBot.FEATURE_COUNT];
+            for (int j = 0; j < weights.length; j++) {
+                weights[j] = random.nextDouble() * 2 - 1;
+            }
+            population[i] = normalize(weights);
+        }
+    }
+
+    /**
+     * Plays one generation and breeds the next
+     * @return Training fitness of the best candidate of the generation played
+     */
+    public double step() throws InterruptedException {
+        double[] fitness = evaluate(population, seed + (long) generation * gamesPerCandidate, gamesPerCandidate);
+
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> -fitness[i]));
+
+        int elites = Math.max(1, (int) (populationSize * ELITE_FRACTION));
+        double[][] next = new double[populationSize][];
+        for (int i = 0; i < elites; i++) {
+            next[i] = population[order[i]].clone();
+        }
+
+        // Pick the weights to keep on seeds no candidate was selected on
+        double[] validation = evaluate(Arrays.copyOf(next, elites), seed + VALIDATION_SEED_OFFSET, validationGames);
+        for (int i = 0; i < elites; i++) {
+            if (validation[i] > bestFitness) {
+                bestFitness = validation[i];
+                bestWeights = next[i].clone();
+            }
+        }
+
+        Random random = new Random(seed * 31 + generation);
+        for (int i = elites; i < populationSize; i++) {
+            int first = tournament(fitness, random);
+            int second = tournament(fitness, random);
+            next[i] = crossover(population[first], fitness[first], population[second], fitness[second], random);
+        }
+        population = next;
+        generation++;
+        return fitness[order[0]];
+    }
+
+    /**
+     * Plays every candidate on the same seeds, all games in parallel
+     * @param candidates Weights to play
+     * @param firstSeed Seed of the first game
+     * @param gamesEach Games per candidate, with seeds firstSeed onwards
+     * @return Mean score of each candidate
+     */
+    private double[] evaluate(double[][] candidates, long firstSeed, int gamesEach) throws InterruptedException {
+        int games = candidates.length * gamesEach;
+        int[] scores = new int[games];
+        try {
+            pool.submit(() -> IntStream.range(0, games).parallel().forEach(i -> {
+                double[] weights = candidates[i / gamesEach];
+                scores[i] = new Simulation(firstSeed + i % gamesEach)
+                    .setInputScript(new HeuristicBot(weights, 0))
+                    .setLimits(Long.MAX_VALUE, maxPieces)
+                    .run().score;
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game failed", e.getCause());
+        }
+
+        double[] fitness = new double[candidates.length];
+        for (int i = 0; i < games; i++) {
+            fitness[i / gamesEach] += scores[i];
+        }
+        for (int i = 0; i < fitness.length; i++) {
+            fitness[i] /= gamesEach;
+        }
+        return fitness;
+    }
+
+    private int tournament(double[] fitness, Random random) {
+        int best = random.nextInt(fitness.length);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int other = random.nextInt(fitness.length);
+            if (fitness[other] > fitness[best]) {
+                best = other;
+            }
+        }
+        return best;
+    }
+
+    private static double[] crossover(double[] first, double firstFitness, double[] second, double secondFitness,
+                                      Random random) {
+        // Weigh each parent by its fitness, evenly if neither scored
+        double total = firstFitness + secondFitness;
+        double share = total > 0 ? firstFitness / total : 0.5;
+        double[] child = new double[first.length];
+        for (int i = 0; i < child.length; i++) {
+            child[i] = first[i] * share + second[i] * (1 - share);
+        }
+        if (random.nextDouble() < MUTATION_CHANCE) {
+            child[random.nextInt(child.length)] += random.nextGaussian() * MUTATION_SIZE;
+        }
+        return normalize(child);
+    }
+
+    private static double[] normalize(double[] weights) {
+        double length = 0;
+        for (double weight : weights) {
+            length += weight * weight;
+        }
+        length = Math.sqrt(length);
+        if (length > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= length;
+            }
+        }
+        return weights;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public double[] getBestWeights() {
+        return bestWeights != null ? bestWeights.clone() : null;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Writes the settings, the population about to be played and the best
+     * weights so far, replacing the checkpoint in one step
+     * @param path The checkpoint file
+     */
+    public void saveCheckpoint(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("generation", Integer.toString(generation));
+        properties.setProperty("population", Integer.toString(populationSize));
+        properties.setProperty("games", Integer.toString(gamesPerCandidate));
+        properties.setProperty("validationGames", Integer.toString(validationGames));
+        properties.setProperty("maxPieces", Integer.toString(maxPieces));
+        properties.setProperty("seed", Long.toString(seed));
+        for (int i = 0; i < populationSize; i++) {
+            properties.setProperty("candidate." + i, formatWeights(population[i]));
+        }
+        if (bestWeights != null) {
+            properties.setProperty("best", formatWeights(bestWeights));
+            properties.setProperty("bestFitness", Double.toString(bestFitness));
+        }
+
+        AtomicFiles.writeProperties(path, properties, "WeightTuner checkpoint");
+    }
+
+    /**
+     * Restores a tuner from a checkpoint, its settings override the command line
+     * @param path The checkpoint file
+     * @param threads Worker threads
+     * @return The tuner, ready to play the checkpointed generation
+     */
+    public static WeightTuner loadCheckpoint(Path path, int threads) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            WeightTuner tuner = new WeightTuner(
+                Integer.parseInt(properties.getProperty("population")),
+                Integer.parseInt(properties.getProperty("games")),
+                Integer.parseInt(properties.getProperty("validationGames")),
+                Integer.parseInt(properties.getProperty("maxPieces")),
+                Long.parseLong(properties.getProperty("seed")),
+                threads);
+            tuner.generation = Integer.parseInt(properties.getProperty("generation"));
+            for (int i = 0; i < tuner.populationSize; i++) {
+                tuner.population[i] = parseWeights(properties.getProperty("candidate." + i));
+            }
+            if (properties.getProperty("best") != null) {
+                tuner.bestWeights = parseWeights(properties.getProperty("best"));
+                tuner.bestFitness = Double.parseDouble(properties.getProperty("bestFitness"));
+            }
+            return tuner;
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("Corrupt checkpoint " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String formatWeights(double[] weights) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            if (i > 0) text.append(',');
+            text.append(weights[i]);
+        }
+        return text.toString();
+    }
+
+    private static double[] parseWeights(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != HeuristicBot.FEATURE_COUNT) {
+            throw new NumberFormatException("Expected " + HeuristicBot.FEATURE_COUNT + " weights: " + text);
+        }
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i].trim());
+        }
+        return weights;
+    }
+
+    public static void main(String[] args) {
+        int generations = 20;
+        int population = 40;
+        int games = 8;
+        int validationGames = 16;
+        int maxPieces = 2000;
+        long seed = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path checkpoint = Paths.get(CHECKPOINT_FILE);
+        Path out = Paths.get(HeuristicBot.WEIGHTS_FILE);
+        boolean fresh = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--generations": generations = Integer.parseInt(args[++i]); break;
+                    case "--population": population = Integer.parseInt(args[++i]); break;
+                    case "--games": games = Integer.parseInt(args[++i]); break;
+                    case "--validation-games": validationGames = Integer.parseInt(args[++i]); break;
+                    case "--max-pieces": maxPieces = Integer.parseInt(args[++i]); break;
+                    case "--seed": seed = Long.parseLong(args[++i]); break;
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--checkpoint": checkpoint = Paths.get(args[++i]); break;
+                    case "--out": out = Paths.get(args[++i]); break;
+                    case "--fresh": fresh = true; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        printUsage();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            printUsage();
+            return;
+        }
+        if (population < 2 || games <= 0 || validationGames <= 0 || maxPieces <= 0 || threads <= 0) {
+            printUsage();
+            return;
+        }
+
+        WeightTuner tuner;
+        if (!fresh && Files.exists(checkpoint)) {
+            try {
+                tuner = loadCheckpoint(checkpoint, threads);
+                System.out.println("Resuming from " + checkpoint + " at generation " + tuner.getGeneration());
+            } catch (IOException e) {
+                System.err.println("Error loading checkpoint: " + e.getMessage());
+                return;
+            }
+        } else {
+            tuner = new WeightTuner(population, games, validationGames, maxPieces, seed, threads);
+        }
+
+        try {
+            while (tuner.getGeneration() < generations) {
+                long start = System.nanoTime();
+                double best = tuner.step();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Generation %d: best %.0f points, best held-out so far %.0f, %.1fs%n",
+                    tuner.getGeneration() - 1, best, tuner.getBestFitness(), seconds);
+
+                tuner.saveCheckpoint(checkpoint);
+                HeuristicBot.saveWeights(out, tuner.getBestWeights(),
+                    String.format("Tuned for %d generations, %.0f mean held-out score", tuner.getGeneration(), tuner.getBestFitness()));
+            }
+            System.out.println("Best weights " + Arrays.toString(tuner.getBestWeights()) + " written to " + out);
+        } catch (IOException e) {
+            System.err.println("Error saving tuner state: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            tuner.shutdown();
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java WeightTuner [--generations G] [--population P] [--games K]"
+            + " [--validation-games V] [--max-pieces N] [--seed S] [--threads T] [--checkpoint file]"
+            + " [--out weights file] [--fresh]");
+    }
+}